@@ -0,0 +1,112 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.parser;
+
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.TypedValue;
+import android.util.Xml;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.xmlpull.v1.XmlPullParser;
+import xyz.zedler.patrick.doodle.R;
+
+/**
+ * Compares our PathParser with the one of androidx for every path of the raw SVG resources
+ */
+@RunWith(AndroidJUnit4.class)
+public class PathParserBenchmark {
+
+  private static final String TAG = PathParserBenchmark.class.getSimpleName();
+
+  private static final int ROUNDS = 5; // first rounds are warm-up
+
+  @Test
+  public void benchmarkPathParsers() throws Exception {
+    List<String> paths = getSvgPaths(
+        InstrumentationRegistry.getInstrumentation().getTargetContext()
+    );
+    assertFalse(paths.isEmpty());
+
+    RectF bounds = new RectF(); // androidx needs an extra pass for the bounds
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = SystemClock.elapsedRealtimeNanos();
+      for (String d : paths) {
+        // Throws and fails the test if any path of our wallpapers can't be parsed
+        PathParser.parse(d);
+      }
+      long ours = SystemClock.elapsedRealtimeNanos() - start;
+
+      start = SystemClock.elapsedRealtimeNanos();
+      int failed = 0;
+      for (String d : paths) {
+        try {
+          androidx.core.graphics.PathParser.createPathFromPathData(d).computeBounds(bounds, true);
+        } catch (RuntimeException e) {
+          failed++;
+        }
+      }
+      long androidx = SystemClock.elapsedRealtimeNanos() - start;
+
+      Log.i(TAG, "benchmarkPathParsers: round " + round + ", " + paths.size() + " paths: "
+          + "PathParser " + ours / 1000000f + " ms, androidx " + androidx / 1000000f + " ms"
+          + (failed > 0 ? " (" + failed + " failed)" : ""));
+    }
+  }
+
+  private static List<String> getSvgPaths(Context context) throws Exception {
+    Resources resources = context.getResources();
+    TypedValue value = new TypedValue();
+    List<String> paths = new ArrayList<>();
+    for (Field field : R.raw.class.getFields()) {
+      int resId = field.getInt(null);
+      resources.getValue(resId, value, true);
+      if (value.string == null || !value.string.toString().endsWith(".svg")) {
+        // Texts, images and other raw resources
+        continue;
+      }
+      try (InputStream input = resources.openRawResource(resId)) {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(input, null);
+        while (parser.next() != XmlPullParser.END_DOCUMENT) {
+          if (parser.getEventType() == XmlPullParser.START_TAG
+              && parser.getName().equals("path")) {
+            String d = parser.getAttributeValue(null, "d");
+            if (d != null && !d.isEmpty()) {
+              paths.add(d);
+            }
+          }
+        }
+      }
+    }
+    return paths;
+  }
+}
@@ -74,6 +74,7 @@ public final class Constants {
 
     public static final String PARALLAX = "parallax";
     public static final String POWER_SAVE_SWIPE = "power_save_swipe";
+    public static final String FRAME_RATE = "frame_rate";
     public static final String TILT = "tilt";
     public static final String REFRESH_RATE = "refresh_rate";
     public static final String DAMPING_TILT = "damping_tilt";
@@ -97,6 +98,7 @@ public final class Constants {
 
     public static final String LANGUAGE = "language";
     public static final String GPU = "hardware_acceleration";
+    public static final String DEPTH_LAYERS = "depth_layers";
     public static final String THEME = "app_theme";
     public static final String MODE = "mode";
 
@@ -116,6 +118,7 @@ public final class Constants {
 
     public static final int PARALLAX = 2;
     public static final boolean POWER_SAVE_SWIPE = false;
+    public static final int FRAME_RATE = 0; // No limit
     public static final boolean TILT = false;
     public static final int REFRESH_RATE = 30000;
     public static final int DAMPING_TILT = 8;
@@ -135,6 +138,7 @@ public final class Constants {
 
     public static final String LANGUAGE = null;
     public static final boolean GPU = true;
+    public static final int DEPTH_LAYERS = 0;
     public static final String THEME = "";
     public static final int MODE = AppCompatDelegate.MODE_NIGHT_FOLLOW_SYSTEM;
   }
@@ -0,0 +1,110 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.drawable;
+
+import android.graphics.Bitmap;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process-wide pool of mutable software bitmaps, which are reused with inBitmap when images of
+ * the next wallpaper are decoded. Bitmaps are kept in buckets of their allocation size rounded down
+ * to a power of two. Only released wallpapers put their bitmaps here, see SvgCache.
+ */
+public class BitmapPool {
+
+  private static final long MAX_SIZE = Runtime.getRuntime().maxMemory() / 8;
+
+  private static final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+  private static long size;
+
+  /**
+   * @return a bitmap with at least the given allocation size or null if none is available
+   */
+  @Nullable
+  public static synchronized Bitmap get(int byteCount) {
+    for (Map.Entry<Integer, ArrayDeque<Bitmap>> entry
+        : buckets.tailMap(getBucket(byteCount)).entrySet()) {
+      Iterator<Bitmap> iterator = entry.getValue().iterator();
+      while (iterator.hasNext()) {
+        Bitmap bitmap = iterator.next();
+        if (bitmap.getAllocationByteCount() >= byteCount) {
+          iterator.remove();
+          size -= bitmap.getAllocationByteCount();
+          return bitmap;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Only mutable software bitmaps are kept, the largest ones are dropped if the pool is full
+   */
+  public static synchronized void put(@NonNull Bitmap bitmap) {
+    if (!bitmap.isMutable() || bitmap.isRecycled() || isHardware(bitmap)) {
+      return;
+    }
+    int byteCount = bitmap.getAllocationByteCount();
+    if (byteCount > MAX_SIZE) {
+      return;
+    }
+    while (size + byteCount > MAX_SIZE && !buckets.isEmpty()) {
+      Map.Entry<Integer, ArrayDeque<Bitmap>> largest = buckets.lastEntry();
+      Bitmap evicted = largest.getValue().pollFirst();
+      if (evicted != null) {
+        size -= evicted.getAllocationByteCount();
+      }
+      if (largest.getValue().isEmpty()) {
+        buckets.remove(largest.getKey());
+      }
+    }
+    ArrayDeque<Bitmap> bucket = buckets.get(getBucket(byteCount));
+    if (bucket == null) {
+      bucket = new ArrayDeque<>();
+      buckets.put(getBucket(byteCount), bucket);
+    }
+    bucket.add(bitmap);
+    size += byteCount;
+  }
+
+  public static synchronized void clear() {
+    buckets.clear();
+    size = 0;
+  }
+
+  static boolean isHardware(@NonNull Bitmap bitmap) {
+    return VERSION.SDK_INT >= VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+  }
+
+  /**
+   * @return the allocation size rounded down to a power of two, so the bucket and all larger ones
+   * can contain a matching bitmap
+   */
+  private static int getBucket(int byteCount) {
+    return Integer.highestOneBit(Math.max(byteCount, 1));
+  }
+}
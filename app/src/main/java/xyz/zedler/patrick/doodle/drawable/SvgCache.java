@@ -0,0 +1,177 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.drawable;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide cache of loaded SVGs, shared by all wallpaper engines and views. Every acquired
+ * drawable has its own object states (offset, zoom, elevation, rotation, etc.), but the paths and
+ * images are only loaded once per resource and pixel unit. An entry is removed as soon as the
+ * last drawable using it is released. Loaded SVGs are also kept in SvgDiskCache across process
+ * deaths.
+ */
+public class SvgCache {
+
+  private static final String TAG = SvgCache.class.getSimpleName();
+
+  private static final Map<String, Entry> entries = new HashMap<>();
+  private static final Map<SvgDrawable, String> acquired = new HashMap<>();
+
+  /**
+   * The SVG is loaded outside of the cache lock, so releases and other resources don't have to
+   * wait for it. Threads acquiring the same resource meanwhile wait for the running load.
+   *
+   * @param scale the scale the drawable will be drawn with, images are decoded for it
+   * @return a new drawable for the resource, which has to be released with release()
+   */
+  @NonNull
+  public static SvgDrawable acquire(Context context, @RawRes int resId, float scale) {
+    String key = getKey(resId, SvgDrawable.getPixelUnit(context));
+    Entry entry;
+    boolean isLoading = false;
+    synchronized (SvgCache.class) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry(new FutureTask<>(() -> load(context, resId, scale)));
+        entries.put(key, entry);
+        isLoading = true;
+      }
+      // Reserved already, so the entry isn't removed while it is loaded
+      entry.references++;
+    }
+    if (isLoading) {
+      entry.task.run();
+    }
+
+    SvgDrawable prototype;
+    try {
+      prototype = getUninterruptibly(entry.task);
+    } catch (ExecutionException e) {
+      synchronized (SvgCache.class) {
+        if (entries.get(key) == entry) {
+          entries.remove(key);
+        }
+      }
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+    // Only decodes images which are missing or don't fit the scale
+    prototype.decodeImages(scale);
+
+    SvgDrawable drawable = new SvgDrawable(prototype);
+    synchronized (SvgCache.class) {
+      acquired.put(drawable, key);
+    }
+    return drawable;
+  }
+
+  /**
+   * Releases a drawable acquired with acquire(), null or already released drawables are ignored.
+   * The drawable must not be drawn anymore when this is called.
+   */
+  public static void release(@Nullable SvgDrawable drawable) {
+    if (drawable == null) {
+      return;
+    }
+    Entry unused = null;
+    synchronized (SvgCache.class) {
+      String key = acquired.remove(drawable);
+      if (key == null) {
+        return;
+      }
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        Log.e(TAG, "release: no entry for " + key);
+      } else if (--entry.references <= 0) {
+        entries.remove(key);
+        unused = entry;
+      }
+    }
+    drawable.invalidateDepthLayers();
+    if (unused != null) {
+      try {
+        // Nothing uses the images anymore, the next wallpaper can reuse their memory
+        getUninterruptibly(unused.task).releaseImages();
+      } catch (ExecutionException e) {
+        Log.e(TAG, "release: entry was never loaded", e);
+      }
+    }
+  }
+
+  private static SvgDrawable load(Context context, @RawRes int resId, float scale) {
+    SvgDrawable drawable = SvgDiskCache.read(context, resId);
+    if (drawable == null) {
+      drawable = new SvgDrawable(context, resId);
+      drawable.decodeImages(scale);
+      SvgDiskCache.write(context, resId, drawable);
+    }
+    return drawable;
+  }
+
+  /**
+   * Loads are never cancelled, so an interrupt only delays the result and is restored afterwards
+   */
+  private static SvgDrawable getUninterruptibly(FutureTask<SvgDrawable> task)
+      throws ExecutionException {
+    boolean isInterrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          isInterrupted = true;
+        }
+      }
+    } finally {
+      if (isInterrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static String getKey(@RawRes int resId, float pixelUnit) {
+    return resId + "_" + pixelUnit;
+  }
+
+  private static class Entry {
+
+    // Loads the prototype, which is never drawn, on the first thread acquiring it
+    final FutureTask<SvgDrawable> task;
+    int references;
+
+    Entry(FutureTask<SvgDrawable> task) {
+      this.task = task;
+    }
+  }
+}
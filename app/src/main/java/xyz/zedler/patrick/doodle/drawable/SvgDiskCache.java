@@ -0,0 +1,460 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.drawable;
+
+import android.content.Context;
+import android.content.pm.PackageManager.NameNotFoundException;
+import android.content.res.AssetManager;
+import android.content.res.Resources.NotFoundException;
+import android.graphics.Bitmap;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import xyz.zedler.patrick.doodle.BuildConfig;
+import xyz.zedler.patrick.doodle.drawable.SvgDrawable.SvgImage;
+import xyz.zedler.patrick.doodle.drawable.SvgDrawable.SvgObject;
+import xyz.zedler.patrick.doodle.parser.PathParser.PathData;
+
+/**
+ * Stores fully loaded SVGs in the cache directory, so they don't need to be loaded again after the
+ * process was killed. Paths are stored as flattened verbs and coordinates and images with their
+ * source and the raw pixels of their last decode. Entries are only valid for the same resource,
+ * pixel unit and app version and are read with a memory-mapped file. Invalid entries are ignored,
+ * the SVG has to be loaded regularly then.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header: int magic, short version, int resId, float pixelUnit, int versionCode,
+ *     long lastUpdateTime, long payloadLength, long crc32 of the payload
+ * payload: float svgWidth, float svgHeight, int backgroundColor, int objectCount, objects...
+ * object: string type, string id, byte isInGroup, float xDistGroupCenter, yDistGroupCenter,
+ *     int fill, int stroke, float fillOpacity, strokeOpacity, string strokeLineCap,
+ *     string strokeLineJoin, float strokeWidth, float rotation, rotationX, rotationY,
+ *     translationX, translationY, scale, width, height, rx, ry, cx, cy, r,
+ *     int verbCount (-1 if no path), int coordCount, verbs, float coords,
+ *     byte imageSource (0 if no image), string fileName (asset) or int length, bytes (data),
+ *     int bitmapWidth (-1 if not decoded), int bitmapHeight, int targetWidth, int targetHeight,
+ *     int byteCount, ARGB_8888 pixels,
+ *     int childCount (-1 if no group), children...
+ * string: short length in bytes (-1 if null), UTF-8 bytes
+ * </pre>
+ */
+public class SvgDiskCache {
+
+  private static final String TAG = SvgDiskCache.class.getSimpleName();
+
+  private static final String DIRECTORY = "scenes";
+  private static final String EXTENSION = ".cache";
+  private static final int MAGIC = 0x44534343; // DSCC
+  private static final short FORMAT_VERSION = 2;
+  private static final byte IMAGE_NONE = 0;
+  private static final byte IMAGE_ASSET = 1;
+  private static final byte IMAGE_DATA = 2;
+  private static final int HEADER_SIZE = 4 + 2 + 4 + 4 + 4 + 8 + 8 + 8;
+  // Entries with images can be several MB, keep only the most recent ones
+  private static final int MAX_ENTRIES = 4;
+
+  /**
+   * @return the cached drawable or null if there is no valid entry
+   */
+  @Nullable
+  static SvgDrawable read(Context context, @RawRes int resId) {
+    File file = getFile(context, resId);
+    if (file == null || !file.exists()) {
+      return null;
+    }
+    try (FileInputStream input = new FileInputStream(file)) {
+      FileChannel channel = input.getChannel();
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      // The mapping stays valid after the channel is closed
+
+      if (buffer.getInt() != MAGIC
+          || buffer.getShort() != FORMAT_VERSION
+          || buffer.getInt() != resId
+          || buffer.getFloat() != SvgDrawable.getPixelUnit(context)
+          || buffer.getInt() != BuildConfig.VERSION_CODE
+          || buffer.getLong() != getLastUpdateTime(context)) {
+        Log.i(TAG, "read: stale entry " + file.getName());
+        deleteFile(file);
+        return null;
+      }
+      long length = buffer.getLong();
+      long checksum = buffer.getLong();
+      if (length != buffer.remaining()) {
+        throw new IOException("Unexpected length");
+      }
+      ByteBuffer payload = buffer.slice();
+      if (getChecksum(payload.duplicate()) != checksum) {
+        throw new IOException("Checksum mismatch");
+      }
+
+      float svgWidth = payload.getFloat();
+      float svgHeight = payload.getFloat();
+      int backgroundColor = payload.getInt();
+      int count = payload.getInt();
+      List<SvgObject> objects = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        objects.add(readObject(payload, context.getAssets()));
+      }
+      return new SvgDrawable(context, svgWidth, svgHeight, backgroundColor, objects);
+    } catch (IOException | RuntimeException e) {
+      // BufferUnderflowException and IllegalArgumentException for corrupt data
+      Log.w(TAG, "read: invalid entry " + file.getName(), e);
+      deleteFile(file);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the drawable if there is no entry yet. Images are written with the pixels of their
+   * current bitmap, if they are decoded.
+   */
+  static void write(Context context, @RawRes int resId, @NonNull SvgDrawable drawable) {
+    File file = getFile(context, resId);
+    if (file == null || file.exists()) {
+      return;
+    }
+    File directory = file.getParentFile();
+    if (directory == null || (!directory.exists() && !directory.mkdirs())) {
+      Log.e(TAG, "write: could not create cache directory");
+      return;
+    }
+    File temp = new File(directory, file.getName() + ".tmp");
+    try {
+      CRC32 crc = new CRC32();
+      long length;
+      try (FileOutputStream output = new FileOutputStream(temp)) {
+        output.write(new byte[HEADER_SIZE]); // placeholder
+        DataOutputStream data = new DataOutputStream(
+            new BufferedOutputStream(new CheckedOutputStream(output, crc))
+        );
+        List<SvgObject> objects = drawable.getObjects();
+        data.writeFloat(drawable.getSvgWidth());
+        data.writeFloat(drawable.getSvgHeight());
+        data.writeInt(drawable.getBackgroundColor());
+        data.writeInt(objects.size());
+        for (SvgObject object : objects) {
+          writeObject(data, object);
+        }
+        data.flush();
+        length = data.size();
+      }
+      try (RandomAccessFile output = new RandomAccessFile(temp, "rw")) {
+        output.writeInt(MAGIC);
+        output.writeShort(FORMAT_VERSION);
+        output.writeInt(resId);
+        output.writeFloat(SvgDrawable.getPixelUnit(context));
+        output.writeInt(BuildConfig.VERSION_CODE);
+        output.writeLong(getLastUpdateTime(context));
+        output.writeLong(length);
+        output.writeLong(crc.getValue());
+      }
+      if (!temp.renameTo(file)) {
+        throw new IOException("Could not rename " + temp.getName());
+      }
+      trim(directory, file);
+    } catch (IOException e) {
+      Log.e(TAG, "write: could not write " + file.getName(), e);
+      deleteFile(temp);
+    }
+  }
+
+  @Nullable
+  private static File getFile(Context context, @RawRes int resId) {
+    try {
+      String name = context.getResources().getResourceEntryName(resId)
+          + "_" + Float.floatToIntBits(SvgDrawable.getPixelUnit(context))
+          + "_" + BuildConfig.VERSION_CODE;
+      return new File(new File(context.getCacheDir(), DIRECTORY), name + EXTENSION);
+    } catch (NotFoundException e) {
+      Log.e(TAG, "getFile: resource not found", e);
+      return null;
+    }
+  }
+
+  private static long getLastUpdateTime(Context context) {
+    try {
+      return context.getPackageManager().getPackageInfo(
+          context.getPackageName(), 0
+      ).lastUpdateTime;
+    } catch (NameNotFoundException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Deletes the oldest entries, but never the one which was just written
+   */
+  private static void trim(File directory, File keep) {
+    File[] files = directory.listFiles();
+    if (files == null || files.length <= MAX_ENTRIES) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    for (int i = 0; i < files.length - MAX_ENTRIES; i++) {
+      if (!files[i].equals(keep)) {
+        deleteFile(files[i]);
+      }
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (file.exists() && !file.delete()) {
+      Log.e(TAG, "deleteFile: could not delete " + file.getName());
+    }
+  }
+
+  private static long getChecksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    if (VERSION.SDK_INT >= VERSION_CODES.O) {
+      crc.update(buffer);
+    } else {
+      byte[] chunk = new byte[8192];
+      while (buffer.hasRemaining()) {
+        int length = Math.min(chunk.length, buffer.remaining());
+        buffer.get(chunk, 0, length);
+        crc.update(chunk, 0, length);
+      }
+    }
+    return crc.getValue();
+  }
+
+  private static void writeObject(DataOutputStream output, SvgObject object) throws IOException {
+    writeString(output, object.type);
+    writeString(output, object.id);
+    output.writeBoolean(object.isInGroup);
+    output.writeFloat(object.xDistGroupCenter);
+    output.writeFloat(object.yDistGroupCenter);
+
+    output.writeInt(object.fill);
+    output.writeInt(object.stroke);
+    output.writeFloat(object.fillOpacity);
+    output.writeFloat(object.strokeOpacity);
+    writeString(output, object.strokeLineCap);
+    writeString(output, object.strokeLineJoin);
+    output.writeFloat(object.strokeWidth);
+
+    output.writeFloat(object.rotation);
+    output.writeFloat(object.rotationX);
+    output.writeFloat(object.rotationY);
+    output.writeFloat(object.translationX);
+    output.writeFloat(object.translationY);
+    output.writeFloat(object.scale);
+
+    output.writeFloat(object.width);
+    output.writeFloat(object.height);
+    output.writeFloat(object.rx);
+    output.writeFloat(object.ry);
+    output.writeFloat(object.cx);
+    output.writeFloat(object.cy);
+    output.writeFloat(object.r);
+
+    if (object.pathData != null) {
+      PathData pathData = object.pathData;
+      output.writeInt(pathData.getVerbCount());
+      output.writeInt(pathData.getCoordCount());
+      output.write(pathData.getVerbs(), 0, pathData.getVerbCount());
+      float[] coords = pathData.getCoords();
+      for (int i = 0; i < pathData.getCoordCount(); i++) {
+        output.writeFloat(coords[i]);
+      }
+    } else {
+      output.writeInt(-1);
+    }
+
+    SvgImage image = object.image;
+    if (image != null && image.getFileName() != null) {
+      output.writeByte(IMAGE_ASSET);
+      writeString(output, image.getFileName());
+    } else if (image != null && image.getData() != null) {
+      output.writeByte(IMAGE_DATA);
+      output.writeInt(image.getData().length);
+      output.write(image.getData());
+    } else {
+      output.writeByte(IMAGE_NONE);
+      image = null;
+    }
+    if (image != null) {
+      Bitmap bitmap;
+      int targetWidth, targetHeight;
+      synchronized (image) { // consistent with a decode in progress
+        bitmap = image.getBitmap();
+        targetWidth = image.getTargetWidth();
+        targetHeight = image.getTargetHeight();
+      }
+      if (bitmap != null) {
+        if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+          bitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        ByteBuffer pixels = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(pixels);
+        output.writeInt(bitmap.getWidth());
+        output.writeInt(bitmap.getHeight());
+        output.writeInt(targetWidth);
+        output.writeInt(targetHeight);
+        output.writeInt(pixels.capacity());
+        output.write(pixels.array(), 0, pixels.capacity());
+      } else {
+        output.writeInt(-1);
+      }
+    }
+
+    if (object.children != null) {
+      output.writeInt(object.children.size());
+      for (SvgObject child : object.children) {
+        writeObject(output, child);
+      }
+    } else {
+      output.writeInt(-1);
+    }
+  }
+
+  private static SvgObject readObject(ByteBuffer buffer, AssetManager assets)
+      throws IOException {
+    String type = readString(buffer);
+    if (type == null) {
+      throw new IOException("Object type is missing");
+    }
+    SvgObject object = new SvgObject(type);
+    object.id = readString(buffer);
+    object.isInGroup = buffer.get() != 0;
+    object.xDistGroupCenter = buffer.getFloat();
+    object.yDistGroupCenter = buffer.getFloat();
+
+    object.fill = buffer.getInt();
+    object.stroke = buffer.getInt();
+    object.fillOpacity = buffer.getFloat();
+    object.strokeOpacity = buffer.getFloat();
+    object.strokeLineCap = readString(buffer);
+    object.strokeLineJoin = readString(buffer);
+    object.strokeWidth = buffer.getFloat();
+
+    object.rotation = buffer.getFloat();
+    object.rotationX = buffer.getFloat();
+    object.rotationY = buffer.getFloat();
+    object.translationX = buffer.getFloat();
+    object.translationY = buffer.getFloat();
+    object.scale = buffer.getFloat();
+
+    object.width = buffer.getFloat();
+    object.height = buffer.getFloat();
+    object.rx = buffer.getFloat();
+    object.ry = buffer.getFloat();
+    object.cx = buffer.getFloat();
+    object.cy = buffer.getFloat();
+    object.r = buffer.getFloat();
+
+    int verbCount = buffer.getInt();
+    if (verbCount >= 0) {
+      int coordCount = buffer.getInt();
+      byte[] verbs = new byte[verbCount];
+      buffer.get(verbs);
+      float[] coords = new float[coordCount];
+      buffer.asFloatBuffer().get(coords);
+      buffer.position(buffer.position() + coordCount * 4);
+      // Already scaled with the pixel unit
+      object.setPathData(PathData.fromVerbs(verbs, verbCount, coords, coordCount));
+    }
+
+    byte imageSource = buffer.get();
+    if (imageSource == IMAGE_ASSET) {
+      String fileName = readString(buffer);
+      if (fileName == null) {
+        throw new IOException("Image file name is missing");
+      }
+      object.image = new SvgImage(assets, fileName);
+    } else if (imageSource == IMAGE_DATA) {
+      byte[] data = new byte[buffer.getInt()];
+      buffer.get(data);
+      object.image = new SvgImage(data);
+    } else if (imageSource != IMAGE_NONE) {
+      throw new IOException("Unknown image source " + imageSource);
+    }
+    if (object.image != null) {
+      int bitmapWidth = buffer.getInt();
+      if (bitmapWidth >= 0) {
+        int bitmapHeight = buffer.getInt();
+        int targetWidth = buffer.getInt();
+        int targetHeight = buffer.getInt();
+        int byteCount = buffer.getInt();
+        if (byteCount > buffer.remaining()) {
+          throw new BufferUnderflowException();
+        }
+        ByteBuffer pixels = buffer.slice();
+        pixels.limit(byteCount);
+        buffer.position(buffer.position() + byteCount);
+        // Used directly from the mapped file if the size on screen is still the same
+        object.image.setCachedPixels(
+            pixels, bitmapWidth, bitmapHeight, targetWidth, targetHeight
+        );
+      }
+    }
+
+    int childCount = buffer.getInt();
+    if (childCount >= 0) {
+      object.children = new ArrayList<>(childCount);
+      for (int i = 0; i < childCount; i++) {
+        object.children.add(readObject(buffer, assets));
+      }
+    }
+    return object;
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String value)
+      throws IOException {
+    if (value == null) {
+      output.writeShort(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeShort(bytes.length);
+    output.write(bytes);
+  }
+
+  @Nullable
+  private static String readString(ByteBuffer buffer) {
+    short length = buffer.getShort();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
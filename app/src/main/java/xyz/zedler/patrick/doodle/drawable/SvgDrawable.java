@@ -20,9 +20,12 @@
 package xyz.zedler.patrick.doodle.drawable;
 
 import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Resources.NotFoundException;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.Canvas.EdgeType;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
@@ -30,28 +33,44 @@ import android.graphics.Paint.Cap;
 import android.graphics.Paint.Join;
 import android.graphics.Paint.Style;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.PointF;
+import android.graphics.RecordingCanvas;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.RenderNode;
 import android.graphics.Shader;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
 import android.util.Base64;
 import android.util.Log;
-import android.util.Xml;
+import android.util.SparseArray;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RawRes;
+import androidx.annotation.RequiresApi;
 import androidx.core.graphics.ColorUtils;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
-import org.xmlpull.v1.XmlPullParser;
-import org.xmlpull.v1.XmlPullParserException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import xyz.zedler.patrick.doodle.Constants.DEF;
 import xyz.zedler.patrick.doodle.parser.PathParser;
+import xyz.zedler.patrick.doodle.parser.PathParser.PathData;
+import xyz.zedler.patrick.doodle.parser.SvgScanner;
 import xyz.zedler.patrick.doodle.util.SystemUiUtil;
 
 public class SvgDrawable {
@@ -61,6 +80,49 @@ public class SvgDrawable {
 
   private static final boolean ENABLE_IMAGES = true;
 
+  public static final int DEFAULT_DEPTH_LAYER_COUNT = 4;
+
+  private static final float IMAGE_SCALE_STEP = 0.25f;
+
+  // Slack around the area a depth layer needs, so small offset changes don't rasterize it again
+  private static final float DEPTH_LAYER_SLACK = 0.1f;
+  // Maximum size of a depth layer relative to the canvas, larger areas are drawn directly
+  private static final float DEPTH_LAYER_MAX_SIZE = 1.6f;
+  // Layers zoomed out further than this are drawn directly
+  private static final float DEPTH_LAYER_MIN_ZOOM_SCALE = 0.1f;
+  // Paths with fewer verbs are not simplified for drawing in motion
+  private static final int LOW_DETAIL_MIN_VERBS = 24;
+  // Maximal deviation of simplified paths in pixel units
+  private static final float LOW_DETAIL_TOLERANCE = 2;
+  // Larger dirty regions relative to the canvas area are not worth a partial redraw
+  private static final float DIRTY_REGION_MAX_AREA = 0.5f;
+
+  // Bounded pool for loading paths and images in parallel, leaves a core for the UI
+  private static final ForkJoinPool LOAD_POOL = new ForkJoinPool(
+      Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 6))
+  );
+
+  // Binary scenes compiled from the SVGs at build time, see buildSrc/.../SceneCompiler
+  private static final String SCENE_DIR = "scenes/";
+  private static final String SCENE_EXTENSION = ".scene";
+  private static final int SCENE_MAGIC = 0x4453434E;
+  private static final short SCENE_VERSION = 2;
+  private static final byte SCENE_TYPE_GROUP = 1;
+  private static final byte SCENE_TYPE_PATH = 2;
+  private static final byte SCENE_TYPE_RECT = 3;
+  private static final byte SCENE_TYPE_CIRCLE = 4;
+  private static final byte SCENE_TYPE_ELLIPSE = 5;
+  private static final byte SCENE_TYPE_IMAGE = 6;
+  private static final byte SCENE_LINE_CAP_BUTT = 1;
+  private static final byte SCENE_LINE_CAP_ROUND = 2;
+  private static final byte SCENE_LINE_CAP_SQUARE = 3;
+  private static final byte SCENE_LINE_JOIN_MITER = 1;
+  private static final byte SCENE_LINE_JOIN_ROUND = 2;
+  private static final byte SCENE_LINE_JOIN_BEVEL = 3;
+  private static final byte SCENE_TRANSFORM_ROTATE = 1;
+  private static final byte SCENE_TRANSFORM_TRANSLATE = 2;
+  private static final byte SCENE_TRANSFORM_SCALE = 3;
+
   private final List<SvgObject> objects;
   private final List<String> ids;
   private float offsetX;
@@ -69,28 +131,92 @@ public class SvgDrawable {
   private float zoom;
   private final float pixelUnit;
   private float svgWidth, svgHeight;
-  private final Paint paint, paintDebug;
+  // Size of the canvas which is drawn on, depth layers are larger but keep the original size
+  private int canvasWidth, canvasHeight;
+  private final Paint paintDebug, paintLayer;
   private int backgroundColor;
-  private final RectF rectF;
-  private PointF pointF;
+  private final RectF rectF, boundsF;
+  // Primitives which were skipped in the last frame because they were not visible
+  private int culledCount;
+  private boolean useLowDetail;
+  private final PointF pointF;
   private final Random random;
+  private final AssetManager assets;
+  // Paths and images which are loaded in parallel by parse(), mapped by their tag offset
+  private SparseArray<ForkJoinTask<PathData>> pathTasks;
+  private SparseArray<ForkJoinTask<byte[]>> imageTasks;
+  // Top-level objects baked into a few bitmaps by their elevation, see setDepthLayerCount()
+  private int depthLayerCount;
+  private DepthLayer[] depthLayers;
+  private int depthLayersWidth, depthLayersHeight;
+  // Reused for rasterizing all depth layers, only the target bitmap is replaced
+  private Canvas layerCanvas;
+  // Screen bounds of the top-level objects are measured for partial redraws, see getDirtyRegion()
+  private Canvas measureCanvas;
+  private Matrix measureMatrix;
+  // Saved states of measureMatrix, see saveTransform()
+  private Matrix[] measureMatrixStack;
+  private int measureMatrixDepth;
+  private SvgObject measuredObject;
+  private int measuredWidth, measuredHeight;
+  private boolean hasMeasuredBounds, hasDrawnBounds;
+  // Images which could not be drawn yet are decoded in the background, see drawImage()
+  private ImageListener imageListener;
+  private volatile boolean hasDecodedImages;
+  private final Runnable imageDecodedRunnable = this::onImageDecoded;
+
+  public interface ImageListener {
+
+    /**
+     * Called on a background thread after an image was decoded which was skipped while drawing,
+     * the drawable should be drawn again
+     */
+    void onImageDecoded();
+  }
 
+  /**
+   * Loads the precompiled scene of the SVG resource if available, else the SVG is parsed
+   */
   public SvgDrawable(Context context, @RawRes int resId) {
+    this(context);
+
+    InputStream scene = openScene(context, resId);
+    if (scene == null || !readScene(scene)) {
+      try {
+        parse(SvgScanner.map(context.getResources(), resId));
+      } catch (IOException | NotFoundException e) {
+        Log.e(TAG, "Could not open SVG resource", e);
+      }
+    }
+    simplifyPaths(objects);
+  }
+
+  /**
+   * Loads a scene which was compiled from a wallpaper SVG at build time, without any XML or path
+   * data parsing
+   */
+  public SvgDrawable(Context context, @NonNull InputStream scene) {
+    this(context);
+
+    if (!readScene(scene)) {
+      Log.e(TAG, "Could not read scene");
+    }
+    simplifyPaths(objects);
+  }
+
+  private SvgDrawable(Context context) {
     pixelUnit = getPixelUnit(context);
+    assets = context.getAssets();
 
     objects = new ArrayList<>();
     ids = new ArrayList<>();
 
-    try {
-      parse(context.getResources().openRawResource(resId));
-    } catch (IOException e) {
-      Log.e(TAG, "Could not open SVG resource", e);
-    }
-
     scale = 1;
 
-    paint = new Paint();
+    paintLayer = new Paint(Paint.FILTER_BITMAP_FLAG);
     rectF = new RectF();
+    boundsF = new RectF();
+    pointF = new PointF();
     random = new Random();
 
     paintDebug = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -100,7 +226,71 @@ public class SvgDrawable {
     paintDebug.setColor(Color.CYAN);
   }
 
-  private static float getPixelUnit(Context context) {
+  /**
+   * Creates a drawable with its own copy of all object states (elevation, rotation, etc.), while
+   * the loaded geometry (paths and images) is shared with the given drawable, see SvgCache
+   */
+  public SvgDrawable(@NonNull SvgDrawable drawable) {
+    pixelUnit = drawable.pixelUnit;
+    assets = drawable.assets;
+    svgWidth = drawable.svgWidth;
+    svgHeight = drawable.svgHeight;
+    backgroundColor = drawable.backgroundColor;
+
+    objects = new ArrayList<>(drawable.objects.size());
+    for (SvgObject object : drawable.objects) {
+      objects.add(new SvgObject(object));
+    }
+    ids = new ArrayList<>(drawable.ids);
+
+    scale = 1;
+
+    paintLayer = new Paint(Paint.FILTER_BITMAP_FLAG);
+    rectF = new RectF();
+    boundsF = new RectF();
+    pointF = new PointF();
+    random = new Random();
+
+    paintDebug = new Paint(drawable.paintDebug);
+  }
+
+  /**
+   * Creates a drawable from objects which are already fully loaded, see SvgDiskCache
+   */
+  SvgDrawable(
+      Context context, float svgWidth, float svgHeight, @ColorInt int backgroundColor,
+      @NonNull List<SvgObject> objects
+  ) {
+    this(context);
+
+    this.svgWidth = svgWidth;
+    this.svgHeight = svgHeight;
+    this.backgroundColor = backgroundColor;
+    for (SvgObject object : objects) {
+      this.objects.add(object);
+      ids.add(object.id);
+    }
+    simplifyPaths(objects);
+  }
+
+  float getSvgWidth() {
+    return svgWidth;
+  }
+
+  float getSvgHeight() {
+    return svgHeight;
+  }
+
+  @ColorInt
+  int getBackgroundColor() {
+    return backgroundColor;
+  }
+
+  List<SvgObject> getObjects() {
+    return objects;
+  }
+
+  static float getPixelUnit(Context context) {
     return SystemUiUtil.dpToPx(context, 1) * 0.33f;
   }
 
@@ -130,8 +320,74 @@ public class SvgDrawable {
     this.offsetY = offsetY;
   }
 
+  /**
+   * Images which are already decoded are decoded again in the background if the new scale
+   * crosses the thresholds of their decoded size
+   */
   public void setScale(float scale) {
+    if (scale != this.scale) {
+      invalidateDepthLayers();
+    }
     this.scale = scale;
+    submitDecodeTasks(objects, scale, null);
+  }
+
+  public void setImageListener(@Nullable ImageListener listener) {
+    imageListener = listener;
+  }
+
+  /**
+   * Simplified paths are drawn while the scene is in motion (swipe, tilt or zoom), when details
+   * can't be seen anyway. Hardware canvases keep a recording of both levels, see drawPath().
+   */
+  public void setLowDetail(boolean lowDetail) {
+    if (lowDetail != useLowDetail) {
+      // The paths change without moving, the next dirty region has to cover everything
+      hasDrawnBounds = false;
+    }
+    useLowDetail = lowDetail;
+  }
+
+  /**
+   * @return the number of path verbs which are drawn in full or low detail, e.g. to compare the
+   * level of detail of wallpapers
+   */
+  public int getVerbCount(boolean lowDetail) {
+    return getVerbCount(objects, lowDetail);
+  }
+
+  private static int getVerbCount(List<SvgObject> objects, boolean lowDetail) {
+    int count = 0;
+    for (SvgObject object : objects) {
+      if (object.children != null) {
+        count += getVerbCount(object.children, lowDetail);
+      } else if (object.pathData != null) {
+        PathData pathData = lowDetail && object.simplePathData != null
+            ? object.simplePathData
+            : object.pathData;
+        count += pathData.getVerbCount();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Prepares the simplified version of all heavy paths, if the simplification saves anything
+   */
+  private void simplifyPaths(List<SvgObject> objects) {
+    for (SvgObject object : objects) {
+      if (object.children != null) {
+        simplifyPaths(object.children);
+      } else if (object.pathData != null
+          && object.pathData.getVerbCount() >= LOW_DETAIL_MIN_VERBS) {
+        PathData simplified = object.pathData.simplify(LOW_DETAIL_TOLERANCE * pixelUnit);
+        int curves = simplified.quadCount + simplified.cubicCount;
+        if (simplified.getVerbCount() < object.pathData.getVerbCount()
+            || curves < object.pathData.quadCount + object.pathData.cubicCount) {
+          object.simplePathData = simplified;
+        }
+      }
+    }
   }
 
   /**
@@ -154,6 +410,7 @@ public class SvgDrawable {
     for (SvgObject object : objects) {
       object.elevation = min + random.nextFloat() * (1 - min);
     }
+    invalidateDepthLayers();
   }
 
   /**
@@ -167,6 +424,7 @@ public class SvgDrawable {
     for (int i = 0; i < objects.size(); i++) {
       objects.get(i).elevation = Math.min(min + step * i, 1);
     }
+    invalidateDepthLayers();
   }
 
   /**
@@ -206,29 +464,465 @@ public class SvgDrawable {
     }
   }
 
+  /**
+   * Optional render mode for software canvases: The elevation of the top-level objects is divided
+   * into ranges and consecutive objects in the same range form a layer, which is rasterized into a
+   * bitmap once, so a frame only needs to draw the translated and scaled layers. The layers are
+   * drawn in the order of the document, so overlapping objects keep their order. Rotation with zoom
+   * is not applied to layers.
+   *
+   * @param count number of elevation ranges and of rasterized layers, the objects of further
+   *              layers are drawn directly, 0 to draw all objects directly
+   */
+  public void setDepthLayerCount(int count) {
+    if (count != depthLayerCount) {
+      depthLayerCount = Math.max(count, 0);
+      invalidateDepthLayers();
+    }
+  }
+
+  /**
+   * Depth layers are built and rasterized again when they are drawn the next time, e.g. after
+   * elevation or scale has changed
+   */
+  public void invalidateDepthLayers() {
+    if (depthLayers == null) {
+      return;
+    }
+    for (DepthLayer layer : depthLayers) {
+      if (layer.bitmap != null) {
+        BitmapPool.put(layer.bitmap);
+      }
+    }
+    depthLayers = null;
+  }
+
+  /**
+   * Measures the screen bounds of all top-level objects with the current state and compares them
+   * to the bounds of the last drawn frame. Bounds are only compared if the last frame was drawn
+   * right after this method was called.
+   *
+   * @param dirty is set to the union of the old and new bounds of all changed objects, it is empty
+   *              if nothing visible has changed
+   * @return true if dirty can be redrawn with draw(Canvas, Rect), false if everything has to be
+   * drawn with draw(Canvas)
+   */
+  public boolean getDirtyRegion(int width, int height, @NonNull Rect dirty) {
+    if (depthLayerCount > 0) {
+      return false;
+    }
+    if (measureCanvas == null) {
+      // Without bitmap nothing is rasterized, the transformations only go to measureMatrix
+      measureCanvas = new Canvas();
+      measureMatrix = new Matrix();
+      // A top-level object saves for its rotation and each path for its translation and scale
+      measureMatrixStack = new Matrix[] {new Matrix(), new Matrix()};
+    }
+    canvasWidth = width;
+    canvasHeight = height;
+    for (int i = 0; i < objects.size(); i++) {
+      SvgObject object = objects.get(i);
+      object.screenBounds.setEmpty();
+      measuredObject = object;
+      measureMatrix.reset();
+      drawObject(measureCanvas, object, null);
+    }
+    measuredObject = null;
+    boolean isSameSize = hasDrawnBounds && width == measuredWidth && height == measuredHeight;
+    measuredWidth = width;
+    measuredHeight = height;
+    hasMeasuredBounds = true;
+    if (!isSameSize || hasDecodedImages) {
+      // New images don't change any bounds
+      return false;
+    }
+
+    rectF.setEmpty();
+    for (int i = 0; i < objects.size(); i++) {
+      SvgObject object = objects.get(i);
+      if (!object.screenBounds.equals(object.drawnScreenBounds)) {
+        rectF.union(object.screenBounds);
+        rectF.union(object.drawnScreenBounds);
+      }
+    }
+    rectF.roundOut(dirty);
+    if (!dirty.intersect(0, 0, width, height)) {
+      // Changes are not visible, so the measured bounds count as drawn
+      dirty.setEmpty();
+      commitMeasuredBounds();
+      return true;
+    }
+    return dirty.width() * dirty.height() <= width * height * DIRTY_REGION_MAX_AREA;
+  }
+
   public void draw(Canvas canvas) {
+    draw(canvas, null);
+  }
+
+  /**
+   * @return the number of paths, shapes and images which were not drawn in the last frame because
+   * they were outside of the canvas or the redrawn region
+   */
+  public int getCulledCount() {
+    return culledCount;
+  }
+
+  /**
+   * @param dirty region of the canvas which has to be redrawn, see getDirtyRegion(), or null if
+   *              the whole canvas has to be drawn
+   */
+  public void draw(Canvas canvas, @Nullable Rect dirty) {
+    canvasWidth = canvas.getWidth();
+    canvasHeight = canvas.getHeight();
+    culledCount = 0;
+    if (hasDecodedImages) {
+      hasDecodedImages = false;
+      // The layers were rasterized without the new images
+      invalidateDepthLayers();
+    }
+    if (dirty != null) {
+      canvas.clipRect(dirty);
+    }
     canvas.drawColor(backgroundColor);
 
+    if (depthLayerCount > 0 && !canvas.isHardwareAccelerated()) {
+      drawDepthLayers(canvas);
+      return;
+    }
+
+    // Indexed loops, iterators would be allocated with every frame
+    for (int i = 0; i < objects.size(); i++) {
+      SvgObject object = objects.get(i);
+      if (dirty == null || object.screenBounds.intersects(
+          dirty.left, dirty.top, dirty.right, dirty.bottom
+      )) {
+        drawObject(canvas, object, null);
+      }
+    }
+
+    if (hasMeasuredBounds && canvasWidth == measuredWidth && canvasHeight == measuredHeight) {
+      commitMeasuredBounds();
+    } else {
+      // The next frame can't be compared to this one
+      hasDrawnBounds = false;
+    }
+    hasMeasuredBounds = false;
+  }
+
+  private void commitMeasuredBounds() {
+    for (int i = 0; i < objects.size(); i++) {
+      SvgObject object = objects.get(i);
+      object.drawnScreenBounds.set(object.screenBounds);
+    }
+    hasDrawnBounds = true;
+    hasMeasuredBounds = false;
+  }
+
+  /**
+   * @param bounds bounds of a primitive in the current canvas coordinates, stroke included
+   * @return true if the primitive must not be drawn, because only its bounds are measured or it
+   * would not be visible on the canvas (culled)
+   */
+  private boolean skipDraw(Canvas canvas, RectF bounds) {
+    if (measuredObject != null) {
+      addMeasuredBounds(bounds);
+      return true;
+    }
+    boolean isOutside = VERSION.SDK_INT >= VERSION_CODES.R
+        ? canvas.quickReject(bounds)
+        : canvas.quickReject(bounds, EdgeType.AA);
+    if (isOutside) {
+      culledCount++;
+    }
+    return isOutside;
+  }
+
+  /**
+   * Adds the bounds of a primitive, which are given in the current canvas coordinates, to the
+   * screen bounds of the measured top-level object
+   */
+  private void addMeasuredBounds(RectF bounds) {
+    measureMatrix.mapRect(bounds);
+    // Anti-aliasing can touch the surrounding pixels
+    bounds.inset(-1, -1);
+    measuredObject.screenBounds.union(bounds);
+  }
+
+  private void drawDepthLayers(Canvas canvas) {
+    if (depthLayers == null
+        || depthLayersWidth != canvasWidth
+        || depthLayersHeight != canvasHeight) {
+      buildDepthLayers();
+    }
+    float centerX = canvasWidth / 2f;
+    float centerY = canvasHeight / 2f;
+    for (DepthLayer layer : depthLayers) {
+      // Same movement as the center of each object in getFinalCenter()
+      float zoomScale = 1 - layer.elevation * zoom;
+      float dx = -offsetX * layer.elevation;
+      float dy = -offsetY * layer.elevation;
+      if (!layer.isDirect && zoomScale >= DEPTH_LAYER_MIN_ZOOM_SCALE) {
+        // Visible area of the layer in unzoomed canvas coordinates
+        rectF.set(
+            centerX - centerX / zoomScale - dx,
+            centerY - centerY / zoomScale - dy,
+            centerX + (canvasWidth - centerX) / zoomScale - dx,
+            centerY + (canvasHeight - centerY) / zoomScale - dy
+        );
+        if ((layer.bitmap != null && layer.bounds.contains(rectF)) || rasterizeDepthLayer(layer)) {
+          canvas.save();
+          canvas.scale(zoomScale, zoomScale, centerX, centerY);
+          canvas.translate(dx, dy);
+          canvas.drawBitmap(layer.bitmap, layer.bounds.left, layer.bounds.top, paintLayer);
+          canvas.restore();
+          continue;
+        }
+      }
+      for (int i = 0; i < layer.objects.size(); i++) {
+        drawObject(canvas, layer.objects.get(i), null);
+      }
+    }
+  }
+
+  private void buildDepthLayers() {
+    invalidateDepthLayers();
+    depthLayersWidth = canvasWidth;
+    depthLayersHeight = canvasHeight;
+
+    // Only consecutive objects are merged, a layer must not contain objects above other layers
+    List<DepthLayer> layers = new ArrayList<>();
+    DepthLayer layer = null;
+    int layerRange = -1;
     for (SvgObject object : objects) {
-      drawObject(canvas, object, null);
+      float elevation = Math.max(0, Math.min(object.elevation, 1));
+      int range = Math.min((int) (elevation * depthLayerCount), depthLayerCount - 1);
+      if (layer == null || range != layerRange) {
+        layer = new DepthLayer();
+        layerRange = range;
+        layers.add(layer);
+      }
+      layer.objects.add(object);
+      layer.elevation += object.elevation;
+    }
+    // The layers are moved with the average elevation of their objects
+    for (DepthLayer depthLayer : layers) {
+      depthLayer.elevation /= depthLayer.objects.size();
     }
+    if (layers.size() > depthLayerCount) {
+      // Only the layers with the most objects get a bitmap, so the memory stays limited
+      List<DepthLayer> bySize = new ArrayList<>(layers);
+      Collections.sort(bySize, (a, b) -> b.objects.size() - a.objects.size());
+      for (int i = depthLayerCount; i < bySize.size(); i++) {
+        bySize.get(i).isDirect = true;
+      }
+    }
+    depthLayers = layers.toArray(new DepthLayer[0]);
   }
 
-  private void parse(InputStream inputStream) throws IOException {
-    try (inputStream) {
-      XmlPullParser parser = Xml.newPullParser();
-      parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, ENABLE_IMAGES);
-      parser.setInput(inputStream, null);
+  /**
+   * Rasterizes the layer for an area which contains its current bounds and the area in rectF
+   *
+   * @return false if the area is too large, the objects of the layer have to be drawn directly
+   */
+  private boolean rasterizeDepthLayer(DepthLayer layer) {
+    if (layer.bitmap != null) {
+      rectF.union(layer.bounds);
+    }
+    float maxWidth = canvasWidth * DEPTH_LAYER_MAX_SIZE;
+    float maxHeight = canvasHeight * DEPTH_LAYER_MAX_SIZE;
+    if (rectF.width() > maxWidth || rectF.height() > maxHeight) {
+      return false;
+    }
+    float slackX = Math.min(canvasWidth * DEPTH_LAYER_SLACK, (maxWidth - rectF.width()) / 2);
+    float slackY = Math.min(canvasHeight * DEPTH_LAYER_SLACK, (maxHeight - rectF.height()) / 2);
+    rectF.inset(-slackX, -slackY);
+    layer.bounds.set(
+        (float) Math.floor(rectF.left), (float) Math.floor(rectF.top),
+        (float) Math.ceil(rectF.right), (float) Math.ceil(rectF.bottom)
+    );
+
+    int width = (int) layer.bounds.width();
+    int height = (int) layer.bounds.height();
+    if (layer.bitmap != null) {
+      BitmapPool.put(layer.bitmap);
+    }
+    layer.bitmap = BitmapPool.get(width * height * 4);
+    try {
+      if (layer.bitmap != null) {
+        layer.bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+        layer.bitmap.eraseColor(Color.TRANSPARENT);
+      } else {
+        layer.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+      }
+    } catch (IllegalArgumentException | OutOfMemoryError e) {
+      Log.e(TAG, "rasterizeDepthLayer: could not create bitmap", e);
+      layer.bitmap = null;
+      return false;
+    }
+
+    // Draw the objects like in a frame without offset and zoom, always in full detail
+    float offsetX = this.offsetX;
+    float offsetY = this.offsetY;
+    float zoom = this.zoom;
+    boolean useLowDetail = this.useLowDetail;
+    this.offsetX = 0;
+    this.offsetY = 0;
+    this.zoom = 0;
+    this.useLowDetail = false;
+    if (layerCanvas == null) {
+      layerCanvas = new Canvas();
+    }
+    layerCanvas.setBitmap(layer.bitmap);
+    layerCanvas.save();
+    layerCanvas.translate(-layer.bounds.left, -layer.bounds.top);
+    for (int i = 0; i < layer.objects.size(); i++) {
+      drawObject(layerCanvas, layer.objects.get(i), null);
+    }
+    layerCanvas.restore();
+    // The bitmap may go back to the BitmapPool and must not be referenced anymore
+    layerCanvas.setBitmap(null);
+    this.offsetX = offsetX;
+    this.offsetY = offsetY;
+    this.zoom = zoom;
+    this.useLowDetail = useLowDetail;
+    return true;
+  }
+
+  /**
+   * Loads the SVG in two phases: A structural scan submits the parsing of all paths and the
+   * decoding of all images to LOAD_POOL, then the document is read again in its order and the
+   * results are collected by the readers.
+   *
+   * @param buffer SVG document, usually memory-mapped from the raw resource
+   */
+  private void parse(ByteBuffer buffer) {
+    pathTasks = new SparseArray<>();
+    imageTasks = new SparseArray<>();
+    try {
+      submitLoadTasks(new SvgScanner(buffer));
+
+      SvgScanner parser = new SvgScanner(buffer);
       parser.next();
       readSvg(parser);
-    } catch (XmlPullParserException | IOException e) {
+    } catch (IOException e) {
       Log.e(TAG, "parse", e);
+    } finally {
+      // Tasks of skipped or unread elements
+      for (int i = 0; i < pathTasks.size(); i++) {
+        pathTasks.valueAt(i).cancel(false);
+      }
+      for (int i = 0; i < imageTasks.size(); i++) {
+        imageTasks.valueAt(i).cancel(false);
+      }
+      pathTasks = null;
+      imageTasks = null;
+    }
+  }
+
+  private void submitLoadTasks(SvgScanner scanner) throws IOException {
+    while (scanner.next() != SvgScanner.END_DOCUMENT) {
+      if (scanner.getEventType() != SvgScanner.START_TAG) {
+        continue;
+      }
+      if (scanner.isName(SvgObject.TYPE_PATH)) {
+        CharSequence d = scanner.getAttributeValue("d");
+        if (d != null && d.length() > 0) {
+          pathTasks.put(scanner.getTagOffset(), LOAD_POOL.submit(() -> PathParser.parse(d)));
+        }
+      } else if (ENABLE_IMAGES && scanner.isName(SvgObject.TYPE_IMAGE)) {
+        ByteBuffer image = getImageData(scanner);
+        if (image != null) {
+          imageTasks.put(scanner.getTagOffset(), LOAD_POOL.submit(() -> decodeDataUri(image)));
+        }
+      }
+    }
+  }
+
+  /**
+   * Decodes all images of the drawable in parallel for the largest size they can reach with the
+   * given scale, else they are decoded one after another when the drawable is drawn first
+   */
+  public void decodeImages(float scale) {
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    submitDecodeTasks(objects, scale, tasks);
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+  }
+
+  /**
+   * @param tasks list for the submitted tasks or null if they should run in the background
+   */
+  private static void submitDecodeTasks(
+      List<SvgObject> objects, float scale, @Nullable List<ForkJoinTask<?>> tasks
+  ) {
+    for (SvgObject object : objects) {
+      if (object.image != null) {
+        SvgImage image = object.image;
+        int width = getImageTargetSize(object.width, scale);
+        int height = getImageTargetSize(object.height, scale);
+        if (!image.needsDecode(width, height)) {
+          continue;
+        }
+        if (tasks != null) {
+          tasks.add(LOAD_POOL.submit(() -> image.decode(width, height)));
+        } else {
+          LOAD_POOL.execute(() -> image.decode(width, height));
+        }
+      } else if (object.children != null) {
+        submitDecodeTasks(object.children, scale, tasks);
+      }
+    }
+  }
+
+  /**
+   * @return memory of all decoded images of the drawable
+   */
+  public long getImageByteCount() {
+    return getImageByteCount(objects);
+  }
+
+  private static long getImageByteCount(List<SvgObject> objects) {
+    long byteCount = 0;
+    for (SvgObject object : objects) {
+      if (object.image != null) {
+        byteCount += object.image.getByteCount();
+      } else if (object.children != null) {
+        byteCount += getImageByteCount(object.children);
+      }
     }
+    return byteCount;
   }
 
-  private void readSvg(XmlPullParser parser) throws IOException, XmlPullParserException {
-    parser.require(XmlPullParser.START_TAG, null, "svg");
-    String viewBox = parser.getAttributeValue(null, "viewBox");
+  /**
+   * Puts the bitmaps of all images into the BitmapPool, they must not be drawn anymore
+   */
+  void releaseImages() {
+    releaseImages(objects);
+  }
+
+  private static void releaseImages(List<SvgObject> objects) {
+    for (SvgObject object : objects) {
+      if (object.image != null) {
+        object.image.release();
+      } else if (object.children != null) {
+        releaseImages(object.children);
+      }
+    }
+  }
+
+  /**
+   * Zoom only shrinks objects, so the largest size on screen is reached with the scale alone. The
+   * scale is rounded up to IMAGE_SCALE_STEP, so small changes don't require a new decode.
+   */
+  private static int getImageTargetSize(float size, float scale) {
+    float imageScale = (float) Math.ceil(scale / IMAGE_SCALE_STEP) * IMAGE_SCALE_STEP;
+    return Math.max(1, (int) Math.ceil(size * imageScale));
+  }
+
+  private void readSvg(SvgScanner parser) throws IOException {
+    parser.require(SvgScanner.START_TAG, "svg");
+    String viewBox = parser.getAttributeString("viewBox");
     if (viewBox != null) {
       String[] metrics = viewBox.split(" ");
       svgWidth = Float.parseFloat(metrics[2]) - Float.parseFloat(metrics[0]);
@@ -238,23 +932,22 @@ public class SvgDrawable {
       return;
     }
 
-    while (parser.next() != XmlPullParser.END_DOCUMENT) {
-      if (parser.getEventType() != XmlPullParser.START_TAG) {
+    while (parser.next() != SvgScanner.END_DOCUMENT) {
+      if (parser.getEventType() != SvgScanner.START_TAG) {
         continue;
       }
       readObject(parser, null);
     }
   }
 
-  private void readObject(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void readObject(SvgScanner parser, SvgObject parentGroup) throws IOException {
     switch (parser.getName()) {
       case SvgObject.TYPE_GROUP:
         if (parentGroup == null) {
           readGroup(parser);
         } else {
           Log.w(TAG, "readSvg: child groups in groups are not supported, skipping...");
-          skip(parser);
+          parser.skip();
         }
         break;
       case SvgObject.TYPE_PATH:
@@ -275,41 +968,275 @@ public class SvgDrawable {
         }
         break;
       default:
-        skip(parser);
+        parser.skip();
         break;
     }
   }
 
+  @Nullable
+  private static InputStream openScene(Context context, @RawRes int resId) {
+    try {
+      String name = context.getResources().getResourceEntryName(resId);
+      return context.getAssets().open(SCENE_DIR + name + SCENE_EXTENSION);
+    } catch (NotFoundException | IOException e) {
+      Log.w(TAG, "openScene: no compiled scene available, parsing SVG...");
+      return null;
+    }
+  }
+
+  /**
+   * @return false if the scene could not be read, nothing is loaded then
+   */
+  private boolean readScene(InputStream inputStream) {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream))) {
+      if (input.readInt() != SCENE_MAGIC || input.readShort() != SCENE_VERSION) {
+        Log.e(TAG, "readScene: unsupported scene format");
+        return false;
+      }
+      svgWidth = input.readFloat();
+      svgHeight = input.readFloat();
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        readSceneObject(input, null);
+      }
+      return true;
+    } catch (IOException e) {
+      Log.e(TAG, "readScene", e);
+      objects.clear();
+      ids.clear();
+      backgroundColor = 0;
+      return false;
+    }
+  }
+
+  private void readSceneObject(DataInputStream input, SvgObject parentGroup) throws IOException {
+    byte type = input.readByte();
+    String id = input.readUTF();
+
+    if (type == SCENE_TYPE_GROUP) {
+      SvgObject object = new SvgObject(SvgObject.TYPE_GROUP);
+      object.id = id;
+      object.children = new ArrayList<>();
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        readSceneObject(input, object);
+      }
+      readSceneTransformation(input, object);
+      addGroup(object);
+      return;
+    }
+
+    SvgObject object;
+    switch (type) {
+      case SCENE_TYPE_PATH:
+        object = new SvgObject(SvgObject.TYPE_PATH);
+        break;
+      case SCENE_TYPE_RECT:
+        object = new SvgObject(SvgObject.TYPE_RECT);
+        break;
+      case SCENE_TYPE_CIRCLE:
+        object = new SvgObject(SvgObject.TYPE_CIRCLE);
+        break;
+      case SCENE_TYPE_ELLIPSE:
+        object = new SvgObject(SvgObject.TYPE_ELLIPSE);
+        break;
+      case SCENE_TYPE_IMAGE:
+        object = new SvgObject(SvgObject.TYPE_IMAGE);
+        break;
+      default:
+        throw new IOException("Unknown object type " + type);
+    }
+    object.id = id;
+    object.isInGroup = parentGroup != null;
+    readSceneStyle(input, object);
+
+    switch (type) {
+      case SCENE_TYPE_PATH: {
+        float left = input.readFloat();
+        float top = input.readFloat();
+        float right = input.readFloat();
+        float bottom = input.readFloat();
+        object.setPathData(readScenePath(input));
+        object.width = right - left;
+        object.height = bottom - top;
+        object.cx = (left + right) / 2;
+        object.cy = (top + bottom) / 2;
+        break;
+      }
+      case SCENE_TYPE_RECT: {
+        float x = input.readFloat();
+        float y = input.readFloat();
+        object.width = input.readFloat();
+        object.height = input.readFloat();
+        object.cx = x + object.width / 2;
+        object.cy = y + object.height / 2;
+        object.rx = input.readFloat();
+        object.ry = input.readFloat();
+        break;
+      }
+      case SCENE_TYPE_CIRCLE:
+        object.cx = input.readFloat();
+        object.cy = input.readFloat();
+        object.r = input.readFloat();
+        break;
+      case SCENE_TYPE_ELLIPSE:
+        object.cx = input.readFloat();
+        object.cy = input.readFloat();
+        object.rx = input.readFloat();
+        object.ry = input.readFloat();
+        break;
+      case SCENE_TYPE_IMAGE: {
+        float x = input.readFloat();
+        float y = input.readFloat();
+        object.width = input.readFloat();
+        object.height = input.readFloat();
+        object.cx = x + object.width / 2;
+        object.cy = y + object.height / 2;
+        String file = input.readUTF();
+        if (!file.isEmpty()) {
+          // Images are separate assets next to the scene, decoded when they are drawn first
+          object.image = new SvgImage(assets, SCENE_DIR + file);
+        }
+        break;
+      }
+    }
+    readSceneTransformation(input, object);
+
+    if (ids.contains(object.id)) {
+      Log.w(TAG, "readSceneObject: id '" + object.id + "' already exists, skipping...");
+      return;
+    }
+    switch (object.type) {
+      case SvgObject.TYPE_PATH:
+        addPath(object, parentGroup);
+        break;
+      case SvgObject.TYPE_RECT:
+        addRect(object, parentGroup);
+        break;
+      case SvgObject.TYPE_CIRCLE:
+        addCircle(object, parentGroup);
+        break;
+      case SvgObject.TYPE_ELLIPSE:
+        addEllipse(object, parentGroup);
+        break;
+      case SvgObject.TYPE_IMAGE:
+        if (ENABLE_IMAGES) {
+          addImage(object, parentGroup);
+        }
+        break;
+    }
+  }
+
+  private void readSceneStyle(DataInputStream input, SvgObject object) throws IOException {
+    object.fill = input.readInt();
+    object.stroke = input.readInt();
+    object.fillOpacity = input.readFloat();
+    object.strokeOpacity = input.readFloat();
+    object.strokeWidth = input.readFloat();
+    switch (input.readByte()) {
+      case SCENE_LINE_CAP_BUTT:
+        object.strokeLineCap = SvgObject.LINE_CAP_BUTT;
+        break;
+      case SCENE_LINE_CAP_ROUND:
+        object.strokeLineCap = SvgObject.LINE_CAP_ROUND;
+        break;
+      case SCENE_LINE_CAP_SQUARE:
+        object.strokeLineCap = SvgObject.LINE_CAP_SQUARE;
+        break;
+    }
+    switch (input.readByte()) {
+      case SCENE_LINE_JOIN_MITER:
+        object.strokeLineJoin = SvgObject.LINE_JOIN_MITER;
+        break;
+      case SCENE_LINE_JOIN_ROUND:
+        object.strokeLineJoin = SvgObject.LINE_JOIN_ROUND;
+        break;
+      case SCENE_LINE_JOIN_BEVEL:
+        object.strokeLineJoin = SvgObject.LINE_JOIN_BEVEL;
+        break;
+    }
+  }
+
+  private void readSceneTransformation(DataInputStream input, SvgObject object)
+      throws IOException {
+    int count = input.readByte();
+    for (int i = 0; i < count; i++) {
+      byte operation = input.readByte();
+      switch (operation) {
+        case SCENE_TRANSFORM_ROTATE:
+          float rotation = input.readFloat();
+          if (input.readBoolean()) {
+            object.rotationX = input.readFloat();
+            object.rotationY = input.readFloat();
+          }
+          applyRotation(object, rotation);
+          break;
+        case SCENE_TRANSFORM_TRANSLATE:
+          float translationX = input.readFloat();
+          float translationY = input.readFloat();
+          applyTranslation(object, translationX, translationY);
+          break;
+        case SCENE_TRANSFORM_SCALE:
+          object.scale = input.readFloat();
+          break;
+        default:
+          throw new IOException("Unknown transformation " + operation);
+      }
+    }
+  }
+
+  /**
+   * Path data is already resolved to absolute verbs and coordinates by the scene compiler, the
+   * verbs are the same as the ones of PathData
+   */
+  private static PathData readScenePath(DataInputStream input) throws IOException {
+    int verbCount = input.readInt();
+    int coordCount = input.readInt();
+    byte[] verbs = new byte[verbCount];
+    input.readFully(verbs);
+    float[] coords = new float[coordCount];
+    for (int i = 0; i < coordCount; i++) {
+      coords[i] = input.readFloat();
+    }
+    try {
+      return PathData.fromVerbs(verbs, verbCount, coords, coordCount);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid path data", e);
+    }
+  }
+
   private void drawObject(Canvas canvas, SvgObject object, SvgObject parentGroup) {
     float zoomRotation = object.isRotatable ? object.zoomRotation * zoom : 0;
     boolean hasPivotOffset = object.pivotOffsetX != 0 || object.pivotOffsetY != 0;
     if (!object.isInGroup && (object.rotation != 0 || zoomRotation != 0)) {
-      canvas.save();
+      saveTransform(canvas);
       if ((object.rotation != 0 || zoomRotation != 0) && !hasPivotOffset) {
         // Even for groups this rotation is required
-        canvas.rotate(
+        rotate(
+            canvas,
             object.rotation + zoomRotation,
-            object.cx * canvas.getWidth(),
-            object.cy * canvas.getHeight()
+            object.cx * canvasWidth,
+            object.cy * canvasHeight
         );
       } else {
         if (object.rotation != 0) {
-          canvas.rotate(
-              object.rotation, object.cx * canvas.getWidth(), object.cy * canvas.getHeight()
+          rotate(
+              canvas, object.rotation, object.cx * canvasWidth, object.cy * canvasHeight
           );
         }
         if (zoomRotation != 0) {
           if (DEBUG) { // draw pivot offset
             canvas.drawPoint(
-                object.cx * canvas.getWidth() + object.pivotOffsetX * pixelUnit * scale,
-                object.cy * canvas.getHeight() + object.pivotOffsetY * pixelUnit * scale,
+                object.cx * canvasWidth + object.pivotOffsetX * pixelUnit * scale,
+                object.cy * canvasHeight + object.pivotOffsetY * pixelUnit * scale,
                 getDebugPaint(Color.YELLOW)
             );
           }
-          canvas.rotate(
+          rotate(
+              canvas,
               zoomRotation,
-              object.cx * canvas.getWidth() + object.pivotOffsetX * pixelUnit * scale,
-              object.cy * canvas.getHeight() + object.pivotOffsetY * pixelUnit * scale
+              object.cx * canvasWidth + object.pivotOffsetX * pixelUnit * scale,
+              object.cy * canvasHeight + object.pivotOffsetY * pixelUnit * scale
           );
         }
       }
@@ -335,19 +1262,64 @@ public class SvgDrawable {
         break;
     }
     if (!object.isInGroup && (object.rotation != 0 || zoomRotation != 0)) {
+      restoreTransform(canvas);
+    }
+  }
+
+  /*
+   * Transformations of the canvas which are applied to measureMatrix instead while the bounds are
+   * measured, so the screen bounds don't need to be read back from the canvas. Like the canvas,
+   * the matrix is pre-concatenated.
+   */
+
+  private void saveTransform(Canvas canvas) {
+    if (measuredObject != null) {
+      measureMatrixStack[measureMatrixDepth++].set(measureMatrix);
+    } else {
+      canvas.save();
+    }
+  }
+
+  private void restoreTransform(Canvas canvas) {
+    if (measuredObject != null) {
+      measureMatrix.set(measureMatrixStack[--measureMatrixDepth]);
+    } else {
       canvas.restore();
     }
   }
 
-  private void readGroup(XmlPullParser parser) throws IOException, XmlPullParserException {
+  private void rotate(Canvas canvas, float degrees, float px, float py) {
+    if (measuredObject != null) {
+      measureMatrix.preRotate(degrees, px, py);
+    } else {
+      canvas.rotate(degrees, px, py);
+    }
+  }
+
+  private void translate(Canvas canvas, float dx, float dy) {
+    if (measuredObject != null) {
+      measureMatrix.preTranslate(dx, dy);
+    } else {
+      canvas.translate(dx, dy);
+    }
+  }
+
+  private void scale(Canvas canvas, float scale, float px, float py) {
+    if (measuredObject != null) {
+      measureMatrix.preScale(scale, scale, px, py);
+    } else {
+      canvas.scale(scale, scale, px, py);
+    }
+  }
+
+  private void readGroup(SvgScanner parser) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_GROUP);
     object.children = new ArrayList<>();
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_GROUP);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_GROUP);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_GROUP)) {
+    if (parser.isName(SvgObject.TYPE_GROUP)) {
       if (object.id == null) {
         Log.w(TAG, "readGroup: id is missing, skipping...");
         return;
@@ -358,62 +1330,66 @@ public class SvgDrawable {
 
       // Save transformation value now (but don't use it, center is not calculated yet)
       // When we continue parsing, the translation value would be lost
-      String transformation = parser.getAttributeValue(null, "transform");
+      String transformation = parser.getAttributeString("transform");
 
-      while (parser.next() != XmlPullParser.END_TAG) {
-        if (parser.getEventType() != XmlPullParser.START_TAG) {
+      while (parser.next() != SvgScanner.END_TAG) {
+        if (parser.getEventType() != SvgScanner.START_TAG) {
           continue;
         }
         readObject(parser, object);
       }
 
       parseTransformation(transformation, object);
+    }
 
-      // Compensate rotation of the child center positions
-      for (SvgObject child : object.children) {
-        PointF center = getRotatedPoint(
-            child.cx, child.cy, object.rotationX, object.rotationY, object.rotation
-        );
-        child.cx = center.x;
-        child.cy = center.y;
-      }
+    addGroup(object);
+  }
 
-      // Calculate group center
-      RectF centersBounds = new RectF();
-      for (int i = 0; i < object.children.size(); i++) {
-        SvgObject child = object.children.get(i);
-        if (i == 0) {
-          centersBounds.offset(child.cx, child.cy);
-        } else {
-          centersBounds.union(child.cx, child.cy);
-        }
-      }
-      object.cx = centersBounds.centerX();
-      object.cy = centersBounds.centerY();
+  private void addGroup(SvgObject object) {
+    // Compensate rotation of the child center positions
+    for (SvgObject child : object.children) {
+      getRotatedPoint(
+          child.cx, child.cy, object.rotationX, object.rotationY, object.rotation, pointF
+      );
+      child.cx = pointF.x;
+      child.cy = pointF.y;
+    }
 
-      // Pass the distance from group center to all children
-      for (SvgObject child : object.children) {
-        child.xDistGroupCenter = (child.cx - object.cx) * pixelUnit;
-        child.yDistGroupCenter = (child.cy - object.cy) * pixelUnit;
-        // Rotate the child around the group center with the negative group rotation angle
-        PointF finalDistance = getRotatedPoint(
-            child.xDistGroupCenter, child.yDistGroupCenter, 0, 0, -object.rotation
-        );
-        child.xDistGroupCenter = finalDistance.x;
-        child.yDistGroupCenter = finalDistance.y;
+    // Calculate group center
+    RectF centersBounds = new RectF();
+    for (int i = 0; i < object.children.size(); i++) {
+      SvgObject child = object.children.get(i);
+      if (i == 0) {
+        centersBounds.offset(child.cx, child.cy);
+      } else {
+        centersBounds.union(child.cx, child.cy);
       }
+    }
+    object.cx = centersBounds.centerX();
+    object.cy = centersBounds.centerY();
 
-      // Make group center relative
-      object.cx /= svgWidth;
-      object.cy /= svgHeight;
+    // Pass the distance from group center to all children
+    for (SvgObject child : object.children) {
+      child.xDistGroupCenter = (child.cx - object.cx) * pixelUnit;
+      child.yDistGroupCenter = (child.cy - object.cy) * pixelUnit;
+      // Rotate the child around the group center with the negative group rotation angle
+      getRotatedPoint(
+          child.xDistGroupCenter, child.yDistGroupCenter, 0, 0, -object.rotation, pointF
+      );
+      child.xDistGroupCenter = pointF.x;
+      child.yDistGroupCenter = pointF.y;
     }
 
+    // Make group center relative
+    object.cx /= svgWidth;
+    object.cy /= svgHeight;
+
     objects.add(object);
     ids.add(object.id);
   }
 
   private void drawGroup(Canvas canvas, SvgObject object) {
-    pointF = getFinalCenter(canvas, object, null);
+    getFinalCenter(object, null, pointF);
     if (DEBUG) { // draw final group center
       float strokeWidth = paintDebug.getStrokeWidth();
       paintDebug.setStrokeWidth(strokeWidth * 2);
@@ -423,21 +1399,19 @@ public class SvgDrawable {
     object.cxFinal = pointF.x;
     object.cyFinal = pointF.y;
     object.childScale = getFinalScale(object, null);
-    for (SvgObject child : object.children) {
-      drawObject(canvas, child, object);
+    for (int i = 0; i < object.children.size(); i++) {
+      drawObject(canvas, object.children.get(i), object);
     }
   }
 
-  private void readPath(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void readPath(SvgScanner parser, SvgObject parentGroup) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_PATH);
     object.isInGroup = parentGroup != null;
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_PATH);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_PATH);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_PATH)) {
+    if (parser.isName(SvgObject.TYPE_PATH)) {
       if (object.id == null) {
         Log.w(TAG, "readPath: id is missing, skipping...");
         return;
@@ -446,39 +1420,38 @@ public class SvgDrawable {
         return;
       }
 
-      String d = parser.getAttributeValue(null, "d");
-      if (d != null && !d.isEmpty()) {
-        try {
-          object.path = androidx.core.graphics.PathParser.createPathFromPathData(d);
-          if (object.path == null) {
-            return;
-          }
-        } catch (RuntimeException e) {
-          Log.w(TAG, "readPath: error with legacy parser, trying with alternative...");
-          object.path = PathParser.getPath(d);
-        }
-      } else {
+      CharSequence d = parser.getAttributeValue("d");
+      if (d == null || d.length() == 0) {
         return;
       }
-
-      RectF bounds = new RectF();
-      object.path.computeBounds(bounds, true);
+      PathData pathData;
+      try {
+        ForkJoinTask<PathData> task = pathTasks.get(parser.getTagOffset());
+        pathData = task != null ? task.join() : PathParser.parse(d);
+      } catch (IllegalArgumentException e) {
+        Log.e(TAG, "readPath: invalid path data of '" + object.id + "', skipping...", e);
+        return;
+      }
+      object.setPathData(pathData);
+      RectF bounds = pathData.bounds;
       object.width = bounds.width();
       object.height = bounds.height();
       object.cx = bounds.centerX();
       object.cy = bounds.centerY();
 
       readStyle(parser, object);
-      parseTransformation(parser.getAttributeValue(null, "transform"), object);
+      parseTransformation(parser.getAttributeString("transform"), object);
 
-      parser.nextTag();
+      parser.next();
     }
-    parser.require(XmlPullParser.END_TAG, null, SvgObject.TYPE_PATH);
+    parser.require(SvgScanner.END_TAG, SvgObject.TYPE_PATH);
+
+    addPath(object, parentGroup);
+  }
 
+  private void addPath(SvgObject object, SvgObject parentGroup) {
     // apply display metrics
-    Matrix scaleMatrix = new Matrix();
-    scaleMatrix.setScale(pixelUnit, pixelUnit, object.cx, object.cy);
-    object.path.transform(scaleMatrix);
+    object.pathData.scale(pixelUnit, object.cx, object.cy);
     if (!object.isInGroup) { // else keep absolute values for later calculation
       object.cx /= svgWidth;
       object.cy /= svgHeight;
@@ -494,10 +1467,10 @@ public class SvgDrawable {
 
   private void drawPath(Canvas canvas, SvgObject object, SvgObject parentGroup) {
 
-    canvas.save();
+    saveTransform(canvas);
 
     float scale = getFinalScale(object, parentGroup);
-    pointF = getFinalCenter(canvas, object, parentGroup);
+    getFinalCenter(object, parentGroup, pointF);
 
     if (DEBUG) { // draw final object center
       canvas.drawPoint(pointF.x, pointF.y, getDebugPaint(Color.RED));
@@ -513,16 +1486,16 @@ public class SvgDrawable {
       float elevation = parentGroup.elevation;
       float xCompensate = ((px + dx) - pointF.x) * (this.scale - 1) * (1 - zoom * elevation);
       float yCompensate = ((py + dy) - pointF.y) * (this.scale - 1) * (1 - zoom * elevation);
-      canvas.translate(dx + xCompensate, dy + yCompensate);
+      translate(canvas, dx + xCompensate, dy + yCompensate);
     } else {
-      canvas.translate(dx, dy);
+      translate(canvas, dx, dy);
     }
 
     if (DEBUG) { // draw scaling pivot point
       canvas.drawPoint(px, py, getDebugPaint(Color.BLUE));
     }
 
-    canvas.scale(scale, scale, px, py);
+    scale(canvas, scale, px, py);
 
     if (object.isInGroup) {
       // fixes child path offset when zoomed out
@@ -530,32 +1503,147 @@ public class SvgDrawable {
       float elevation = parentGroup.elevation;
       float xCompensate = ((px + dx) - pointF.x) * (1 - (this.scale - 1)) * (zoom * elevation);
       float yCompensate = ((py + dy) - pointF.y) * (1 - (this.scale - 1)) * (zoom * elevation);
-      canvas.translate(-xCompensate, -yCompensate);
+      translate(canvas, -xCompensate, -yCompensate);
+    }
+
+    boundsF.set(object.getPathBounds());
+    if (object.hasStroke()) {
+      // Generous for miter joins
+      boundsF.inset(-object.strokeWidth * pixelUnit, -object.strokeWidth * pixelUnit);
+    }
+    if (skipDraw(canvas, boundsF)) {
+      restoreTransform(canvas);
+      return;
     }
 
     // start with fill and repeat with stroke if both are set
     // don't apply scale to stroke width, stroke is already scaled with canvas transformation
-    int runs = applyPaintStyle(object, 1, false) ? 2 : 1;
-    for (int i = 0; i < runs; i++) {
-      if (i == 1) {
-        applyPaintStyle(object, 1, true);
+    Paint fillPaint = object.hasFill() ? object.getFillPaint() : null;
+    Paint strokePaint = object.hasStroke()
+        ? object.getStrokePaint(object.strokeWidth * pixelUnit)
+        : null;
+    boolean isSimple = useLowDetail && object.simplePathData != null;
+    PathData pathData = isSimple ? object.simplePathData : object.pathData;
+    if (DEBUG || !canvas.isHardwareAccelerated() || VERSION.SDK_INT < VERSION_CODES.M) {
+      // Recordings are only supported and worth it for hardware canvases
+      drawPath(canvas, pathData.path, fillPaint, strokePaint);
+    } else {
+      // Both levels of detail are recorded, so the end of a motion doesn't record again
+      PathRecording recording = object.getRecording(isSimple);
+      if (VERSION.SDK_INT >= VERSION_CODES.Q) {
+        canvas.drawRenderNode(
+            getPathRenderNode(object, recording, pathData, fillPaint, strokePaint)
+        );
+      } else {
+        Picture picture = getPathPicture(object, recording, pathData, fillPaint, strokePaint);
+        canvas.translate(recording.left, recording.top);
+        canvas.drawPicture(picture);
       }
-      canvas.drawPath(object.path, paint);
     }
 
-    canvas.restore();
+    restoreTransform(canvas);
+  }
+
+  private static void drawPath(
+      Canvas canvas, Path path, @Nullable Paint fillPaint, @Nullable Paint strokePaint
+  ) {
+    if (fillPaint != null) {
+      canvas.drawPath(path, fillPaint);
+    }
+    if (strokePaint != null) {
+      canvas.drawPath(path, strokePaint);
+    }
+  }
+
+  /**
+   * @return the path recorded into a render node, which is only recorded again if a paint has
+   * changed, so the GPU can reuse its tessellation in every frame and only the transformation
+   * of the canvas changes
+   */
+  @RequiresApi(api = VERSION_CODES.Q)
+  private RenderNode getPathRenderNode(
+      SvgObject object, PathRecording recording, PathData pathData,
+      @Nullable Paint fillPaint, @Nullable Paint strokePaint
+  ) {
+    RenderNode renderNode = recording.renderNode;
+    if (renderNode != null
+        && renderNode.hasDisplayList()
+        && recording.paintVersion == object.paintVersion) {
+      return renderNode;
+    }
+    if (renderNode == null) {
+      renderNode = new RenderNode(object.id);
+      renderNode.setClipToBounds(false);
+      recording.renderNode = renderNode;
+    }
+    updateRecordingBounds(recording, pathData, strokePaint);
+    renderNode.setPosition(
+        recording.left, recording.top,
+        recording.left + recording.width, recording.top + recording.height
+    );
+    RecordingCanvas recordingCanvas = renderNode.beginRecording();
+    try {
+      recordingCanvas.translate(-recording.left, -recording.top);
+      drawPath(recordingCanvas, pathData.path, fillPaint, strokePaint);
+    } finally {
+      renderNode.endRecording();
+    }
+    recording.paintVersion = object.paintVersion;
+    return renderNode;
+  }
+
+  /**
+   * Fallback of getPathRenderNode for API 23-28, the picture has to be drawn with a translation
+   * to the recording bounds
+   */
+  private Picture getPathPicture(
+      SvgObject object, PathRecording recording, PathData pathData,
+      @Nullable Paint fillPaint, @Nullable Paint strokePaint
+  ) {
+    Picture picture = recording.picture;
+    if (picture != null && recording.paintVersion == object.paintVersion) {
+      return picture;
+    }
+    if (picture == null) {
+      picture = new Picture();
+      recording.picture = picture;
+    }
+    updateRecordingBounds(recording, pathData, strokePaint);
+    Canvas recordingCanvas = picture.beginRecording(recording.width, recording.height);
+    try {
+      recordingCanvas.translate(-recording.left, -recording.top);
+      drawPath(recordingCanvas, pathData.path, fillPaint, strokePaint);
+    } finally {
+      picture.endRecording();
+    }
+    recording.paintVersion = object.paintVersion;
+    return picture;
+  }
+
+  /**
+   * Pictures are clipped to their size, so the bounds include the stroke with miter joins and
+   * some space for anti-aliasing
+   */
+  private void updateRecordingBounds(
+      PathRecording recording, PathData pathData, @Nullable Paint strokePaint
+  ) {
+    rectF.set(pathData.bounds);
+    float inset = strokePaint != null ? -strokePaint.getStrokeWidth() * 2 - 1 : -1;
+    rectF.inset(inset, inset);
+    recording.left = (int) Math.floor(rectF.left);
+    recording.top = (int) Math.floor(rectF.top);
+    recording.width = Math.max((int) Math.ceil(rectF.right) - recording.left, 1);
+    recording.height = Math.max((int) Math.ceil(rectF.bottom) - recording.top, 1);
   }
 
-  private void readRect(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void readRect(SvgScanner parser, SvgObject parentGroup) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_RECT);
     object.isInGroup = parentGroup != null;
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_RECT);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_RECT);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_RECT)) {
+    if (parser.isName(SvgObject.TYPE_RECT)) {
       if (object.id == null) {
         Log.w(TAG, "readRect: id is missing, skipping...");
         return;
@@ -564,27 +1652,31 @@ public class SvgDrawable {
         return;
       }
 
-      object.width = parseFloat(parser.getAttributeValue(null, "width"));
-      object.height = parseFloat(parser.getAttributeValue(null, "height"));
-      float x = parseFloat(parser.getAttributeValue(null, "x"));
-      float y = parseFloat(parser.getAttributeValue(null, "y"));
+      object.width = parser.getAttributeFloat("width", 0);
+      object.height = parser.getAttributeFloat("height", 0);
+      float x = parser.getAttributeFloat("x", 0);
+      float y = parser.getAttributeFloat("y", 0);
       object.cx = x + object.width / 2;
       object.cy = y + object.height / 2;
-      object.rx = parseFloat(parser.getAttributeValue(null, "rx"));
-      object.ry = parseFloat(parser.getAttributeValue(null, "ry"));
+      object.rx = parser.getAttributeFloat("rx", 0);
+      object.ry = parser.getAttributeFloat("ry", 0);
 
       readStyle(parser, object);
-      parseTransformation(parser.getAttributeValue(null, "transform"), object);
+      parseTransformation(parser.getAttributeString("transform"), object);
 
-      // has same size as SVG? Use it as background color and don't use it as object
-      if (object.width == svgWidth && object.height == svgHeight) {
-        backgroundColor = object.fill;
-        return;
-      }
+      parser.next();
+    }
+    parser.require(SvgScanner.END_TAG, SvgObject.TYPE_RECT);
 
-      parser.nextTag();
+    addRect(object, parentGroup);
+  }
+
+  private void addRect(SvgObject object, SvgObject parentGroup) {
+    // has same size as SVG? Use it as background color and don't use it as object
+    if (object.width == svgWidth && object.height == svgHeight) {
+      backgroundColor = object.fill;
+      return;
     }
-    parser.require(XmlPullParser.END_TAG, null, SvgObject.TYPE_RECT);
 
     // apply display metrics
     object.width *= pixelUnit;
@@ -606,7 +1698,7 @@ public class SvgDrawable {
 
   private void drawRect(Canvas canvas, SvgObject object, SvgObject parentGroup) {
     float scale = getFinalScale(object, parentGroup);
-    pointF = getFinalCenter(canvas, object, parentGroup);
+    getFinalCenter(object, parentGroup, pointF);
     rectF.set(
         pointF.x - (object.width * scale) / 2,
         pointF.y - (object.height * scale) / 2,
@@ -614,19 +1706,21 @@ public class SvgDrawable {
         pointF.y + (object.height * scale) / 2
     );
 
+    boundsF.set(rectF);
+    if (object.hasStroke()) {
+      float stroke = object.strokeWidth * pixelUnit * scale;
+      boundsF.inset(-stroke, -stroke);
+    }
+    if (skipDraw(canvas, boundsF)) {
+      return;
+    }
+
     // start with fill and repeat with stroke if both are set
-    int runs = applyPaintStyle(object, scale, false) ? 2 : 1;
-    for (int i = 0; i < runs; i++) {
-      if (i == 1) {
-        applyPaintStyle(object, scale, true);
-      }
-      if (object.rx == 0 && object.ry == 0) {
-        canvas.drawRect(rectF, paint);
-      } else {
-        float rx = object.rx != 0 ? object.rx : object.ry;
-        float ry = object.ry != 0 ? object.ry : object.rx;
-        canvas.drawRoundRect(rectF, rx, ry, paint);
-      }
+    if (object.hasFill()) {
+      drawRect(canvas, object, object.getFillPaint());
+    }
+    if (object.hasStroke()) {
+      drawRect(canvas, object, object.getStrokePaint(object.strokeWidth * pixelUnit * scale));
     }
 
     if (DEBUG) { // draw final object center
@@ -634,16 +1728,24 @@ public class SvgDrawable {
     }
   }
 
-  private void readCircle(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void drawRect(Canvas canvas, SvgObject object, Paint paint) {
+    if (object.rx == 0 && object.ry == 0) {
+      canvas.drawRect(rectF, paint);
+    } else {
+      float rx = object.rx != 0 ? object.rx : object.ry;
+      float ry = object.ry != 0 ? object.ry : object.rx;
+      canvas.drawRoundRect(rectF, rx, ry, paint);
+    }
+  }
+
+  private void readCircle(SvgScanner parser, SvgObject parentGroup) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_CIRCLE);
     object.isInGroup = parentGroup != null;
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_CIRCLE);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_CIRCLE);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_CIRCLE)) {
+    if (parser.isName(SvgObject.TYPE_CIRCLE)) {
       if (object.id == null) {
         Log.w(TAG, "readCircle: id is missing, skipping...");
         return;
@@ -652,17 +1754,21 @@ public class SvgDrawable {
         return;
       }
 
-      object.cx = parseFloat(parser.getAttributeValue(null, "cx"));
-      object.cy = parseFloat(parser.getAttributeValue(null, "cy"));
-      object.r = parseFloat(parser.getAttributeValue(null, "r"));
+      object.cx = parser.getAttributeFloat("cx", 0);
+      object.cy = parser.getAttributeFloat("cy", 0);
+      object.r = parser.getAttributeFloat("r", 0);
 
       readStyle(parser, object);
-      parseTransformation(parser.getAttributeValue(null, "transform"), object);
+      parseTransformation(parser.getAttributeString("transform"), object);
 
-      parser.nextTag();
+      parser.next();
     }
-    parser.require(XmlPullParser.END_TAG, null, SvgObject.TYPE_CIRCLE);
+    parser.require(SvgScanner.END_TAG, SvgObject.TYPE_CIRCLE);
 
+    addCircle(object, parentGroup);
+  }
+
+  private void addCircle(SvgObject object, SvgObject parentGroup) {
     // apply display metrics
     if (!object.isInGroup) { // else keep absolute values for later calculation
       object.cx /= svgWidth;
@@ -679,40 +1785,60 @@ public class SvgDrawable {
   }
 
   private void drawCircle(Canvas canvas, SvgObject object, SvgObject parentGroup) {
-    pointF = getFinalCenter(canvas, object, parentGroup);
+    getFinalCenter(object, parentGroup, pointF);
     float scale = getFinalScale(object, parentGroup);
 
+    float rx = object.rx;
+    float ry = object.ry;
+    if (object.type.equals(SvgObject.TYPE_CIRCLE) || object.rx == object.ry) {
+      rx = object.r > 0 ? object.r : object.rx;
+      ry = rx;
+    }
+    float stroke = object.hasStroke() ? object.strokeWidth * pixelUnit : 0;
+    boundsF.set(
+        pointF.x - (rx + stroke) * scale,
+        pointF.y - (ry + stroke) * scale,
+        pointF.x + (rx + stroke) * scale,
+        pointF.y + (ry + stroke) * scale
+    );
+    if (skipDraw(canvas, boundsF)) {
+      return;
+    }
+
     // start with fill and repeat with stroke if both are set
-    int runs = applyPaintStyle(object, scale, false) ? 2 : 1;
-    for (int i = 0; i < runs; i++) {
-      if (i == 1) {
-        applyPaintStyle(object, scale, true);
-      }
-      if (object.type.equals(SvgObject.TYPE_CIRCLE) || object.rx == object.ry) {
-        float radius = object.r > 0 ? object.r : object.rx;
-        canvas.drawCircle(pointF.x, pointF.y, radius * scale, paint);
-      } else if (object.type.equals(SvgObject.TYPE_ELLIPSE)) {
-        canvas.drawOval(
-            pointF.x - object.rx * scale,
-            pointF.y - object.ry * scale,
-            pointF.x + object.rx * scale,
-            pointF.y + object.ry * scale,
-            paint
-        );
-      }
+    if (object.hasFill()) {
+      drawCircle(canvas, object, scale, object.getFillPaint());
+    }
+    if (object.hasStroke()) {
+      drawCircle(
+          canvas, object, scale, object.getStrokePaint(object.strokeWidth * pixelUnit * scale)
+      );
+    }
+  }
+
+  private void drawCircle(Canvas canvas, SvgObject object, float scale, Paint paint) {
+    if (object.type.equals(SvgObject.TYPE_CIRCLE) || object.rx == object.ry) {
+      float radius = object.r > 0 ? object.r : object.rx;
+      canvas.drawCircle(pointF.x, pointF.y, radius * scale, paint);
+    } else if (object.type.equals(SvgObject.TYPE_ELLIPSE)) {
+      canvas.drawOval(
+          pointF.x - object.rx * scale,
+          pointF.y - object.ry * scale,
+          pointF.x + object.rx * scale,
+          pointF.y + object.ry * scale,
+          paint
+      );
     }
   }
 
-  private void readEllipse(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void readEllipse(SvgScanner parser, SvgObject parentGroup) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_ELLIPSE);
     object.isInGroup = parentGroup != null;
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_ELLIPSE);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_ELLIPSE);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_ELLIPSE)) {
+    if (parser.isName(SvgObject.TYPE_ELLIPSE)) {
       if (object.id == null) {
         Log.w(TAG, "readEllipse: id is missing, skipping...");
         return;
@@ -721,18 +1847,22 @@ public class SvgDrawable {
         return;
       }
 
-      object.cx = parseFloat(parser.getAttributeValue(null, "cx"));
-      object.cy = parseFloat(parser.getAttributeValue(null, "cy"));
-      object.rx = parseFloat(parser.getAttributeValue(null, "rx"));
-      object.ry = parseFloat(parser.getAttributeValue(null, "ry"));
+      object.cx = parser.getAttributeFloat("cx", 0);
+      object.cy = parser.getAttributeFloat("cy", 0);
+      object.rx = parser.getAttributeFloat("rx", 0);
+      object.ry = parser.getAttributeFloat("ry", 0);
 
       readStyle(parser, object);
-      parseTransformation(parser.getAttributeValue(null, "transform"), object);
+      parseTransformation(parser.getAttributeString("transform"), object);
 
-      parser.nextTag();
+      parser.next();
     }
-    parser.require(XmlPullParser.END_TAG, null, SvgObject.TYPE_ELLIPSE);
+    parser.require(SvgScanner.END_TAG, SvgObject.TYPE_ELLIPSE);
 
+    addEllipse(object, parentGroup);
+  }
+
+  private void addEllipse(SvgObject object, SvgObject parentGroup) {
     // apply display metrics
     if (!object.isInGroup) { // else keep absolute values for later calculation
       object.cx /= svgWidth;
@@ -751,16 +1881,14 @@ public class SvgDrawable {
 
   // drawEllipse is included in drawCircle
 
-  private void readImage(XmlPullParser parser, SvgObject parentGroup)
-      throws IOException, XmlPullParserException {
+  private void readImage(SvgScanner parser, SvgObject parentGroup) throws IOException {
     SvgObject object = new SvgObject(SvgObject.TYPE_IMAGE);
     object.isInGroup = parentGroup != null;
 
-    parser.require(XmlPullParser.START_TAG, null, SvgObject.TYPE_IMAGE);
-    String tag = parser.getName();
-    object.id = parser.getAttributeValue(null, "id");
+    parser.require(SvgScanner.START_TAG, SvgObject.TYPE_IMAGE);
+    object.id = parser.getAttributeString("id");
 
-    if (tag.equals(SvgObject.TYPE_IMAGE)) {
+    if (parser.isName(SvgObject.TYPE_IMAGE)) {
       if (object.id == null) {
         Log.w(TAG, "readImage: id is missing, skipping...");
         return;
@@ -769,27 +1897,62 @@ public class SvgDrawable {
         return;
       }
 
-      object.width = parseFloat(parser.getAttributeValue(null, "width"));
-      object.height = parseFloat(parser.getAttributeValue(null, "height"));
-      float x = parseFloat(parser.getAttributeValue(null, "x"));
-      float y = parseFloat(parser.getAttributeValue(null, "y"));
+      object.width = parser.getAttributeFloat("width", 0);
+      object.height = parser.getAttributeFloat("height", 0);
+      float x = parser.getAttributeFloat("x", 0);
+      float y = parser.getAttributeFloat("y", 0);
       object.cx = x + object.width / 2;
       object.cy = y + object.height / 2;
 
       readStyle(parser, object);
-      parseTransformation(parser.getAttributeValue(null, "transform"), object);
+      parseTransformation(parser.getAttributeString("transform"), object);
 
-      String image = parser.getAttributeValue(parser.getNamespace("xlink"), "href");
-      if (image != null) {
-        image = image.substring(image.indexOf(",") + 1);
-        byte[] decoded = Base64.decode(image, Base64.DEFAULT);
-        object.bitmap = BitmapFactory.decodeByteArray(decoded, 0, decoded.length);
+      // Only the base64 data is decoded here, the bitmap is decoded for its size on screen
+      ForkJoinTask<byte[]> task = imageTasks.get(parser.getTagOffset());
+      if (task != null) {
+        object.image = new SvgImage(task.join());
+      } else {
+        ByteBuffer image = getImageData(parser);
+        if (image != null) {
+          object.image = new SvgImage(decodeDataUri(image));
+        }
       }
 
-      parser.nextTag();
+      parser.next();
+    }
+    parser.require(SvgScanner.END_TAG, SvgObject.TYPE_IMAGE);
+
+    addImage(object, parentGroup);
+  }
+
+  @Nullable
+  private static ByteBuffer getImageData(SvgScanner parser) {
+    ByteBuffer image = parser.getAttributeBuffer("xlink:href");
+    return image != null ? image : parser.getAttributeBuffer("href");
+  }
+
+  /**
+   * Decodes the base64 payload of a data URI directly from the buffer, without building a String
+   */
+  private static byte[] decodeDataUri(ByteBuffer uri) {
+    int start = uri.position();
+    for (int i = uri.position(); i < uri.limit(); i++) {
+      if (uri.get(i) == ',') {
+        start = i + 1;
+        break;
+      }
     }
-    parser.require(XmlPullParser.END_TAG, null, SvgObject.TYPE_IMAGE);
+    int length = uri.limit() - start;
+    if (uri.hasArray()) {
+      return Base64.decode(uri.array(), uri.arrayOffset() + start, length, Base64.DEFAULT);
+    }
+    byte[] encoded = new byte[length];
+    uri.position(start);
+    uri.get(encoded);
+    return Base64.decode(encoded, Base64.DEFAULT);
+  }
 
+  private void addImage(SvgObject object, SvgObject parentGroup) {
     // apply display metrics
     object.width *= pixelUnit;
     object.height *= pixelUnit;
@@ -807,19 +1970,47 @@ public class SvgDrawable {
   }
 
   private void drawImage(Canvas canvas, SvgObject object, SvgObject parentGroup) {
-    paint.reset();
-    paint.setAntiAlias(true);
-
-    float scale = getFinalScale(object, parentGroup);
-    pointF = getFinalCenter(canvas, object, parentGroup);
+    if (object.image == null) {
+      return;
+    }
+    float finalScale = getFinalScale(object, parentGroup);
+    getFinalCenter(object, parentGroup, pointF);
     rectF.set(
-        pointF.x - (object.width * scale) / 2,
-        pointF.y - (object.height * scale) / 2,
-        pointF.x + (object.width * scale) / 2,
-        pointF.y + (object.height * scale) / 2
+        pointF.x - (object.width * finalScale) / 2,
+        pointF.y - (object.height * finalScale) / 2,
+        pointF.x + (object.width * finalScale) / 2,
+        pointF.y + (object.height * finalScale) / 2
     );
+    boundsF.set(rectF);
+    if (skipDraw(canvas, boundsF)) {
+      return;
+    }
+
+    Bitmap bitmap = object.image.getBitmap();
+    if (bitmap == null || !canDraw(canvas, bitmap)) {
+      // Not decoded in advance or still decoded for the other type of canvas, the frame must not
+      // wait for the decode, so the image is only drawn with the next frame
+      int width = getImageTargetSize(object.width, scale);
+      int height = getImageTargetSize(object.height, scale);
+      if (object.image.needsDecode(width, height)) {
+        object.image.decodeAsync(LOAD_POOL, width, height, imageDecodedRunnable);
+      }
+      return;
+    }
 
-    canvas.drawBitmap(object.bitmap, null, rectF, paint);
+    canvas.drawBitmap(bitmap, null, rectF, object.getImagePaint());
+  }
+
+  private void onImageDecoded() {
+    hasDecodedImages = true;
+    ImageListener listener = imageListener;
+    if (listener != null) {
+      listener.onImageDecoded();
+    }
+  }
+
+  private static boolean canDraw(Canvas canvas, Bitmap bitmap) {
+    return canvas.isHardwareAccelerated() || !BitmapPool.isHardware(bitmap);
   }
 
   private void parseTransformation(String transformation, SvgObject object) {
@@ -832,27 +2023,20 @@ public class SvgDrawable {
       if (action.contains("rotate")) {
         String[] rotation = value.split("[\\n\\r\\s]+");
 
-        object.rotation = Float.parseFloat(rotation[0]);
         if (rotation.length == 3) {
           object.rotationX = Float.parseFloat(rotation[1]);
           object.rotationY = Float.parseFloat(rotation[2]);
         }
-
-        if (!object.type.equals(SvgObject.TYPE_GROUP)) {
-          pointF = getRotatedPoint(
-              object.cx, object.cy, object.rotationX, object.rotationY, object.rotation
-          );
-          object.cx = pointF.x;
-          object.cy = pointF.y;
-        }
+        applyRotation(object, Float.parseFloat(rotation[0]));
       } else if (action.contains("translate")) {
         String[] translation = value.split(",");
         if (translation.length != 2) {
           Log.e(TAG, "parseTransformation: translation: value not supported");
           return;
         }
-        object.translationX = Float.parseFloat(translation[0]) / svgWidth;
-        object.translationY = Float.parseFloat(translation[1]) / svgHeight;
+        applyTranslation(
+            object, Float.parseFloat(translation[0]), Float.parseFloat(translation[1])
+        );
       } else if (action.contains("scale")) {
         String[] scale = value.split("[\\n\\r\\s]+");
         if (scale.length > 1) {
@@ -868,95 +2052,33 @@ public class SvgDrawable {
     }
   }
 
-  private void readStyle(XmlPullParser parser, SvgObject object) {
-    object.fill = parseColor(parser.getAttributeValue(null, "fill"));
-    object.stroke = parseColor(parser.getAttributeValue(null, "stroke"));
-    object.fillOpacity = parseOpacity(
-        parser.getAttributeValue(null, "fill-opacity")
-    );
-    object.strokeOpacity = parseOpacity(
-        parser.getAttributeValue(null, "stroke-opacity")
-    );
-    object.strokeWidth = parseFloat(parser.getAttributeValue(null, "stroke-width"));
-    object.strokeLineCap = parser.getAttributeValue(null, "stroke-linecap");
-    object.strokeLineJoin = parser.getAttributeValue(null, "stroke-linejoin");
-  }
-
   /**
-   * @return true if a second draw for a separate stroke style is needed
+   * Rotation pivot (rotationX and rotationY) has to be set before
    */
-  private boolean applyPaintStyle(SvgObject object, float scale, boolean applyStrokeIfBothSet) {
-    paint.reset();
-    paint.setAntiAlias(true);
-
-    boolean hasFill = object.fill != 0;
-    boolean hasStroke = object.stroke != 0 && object.strokeWidth > 0;
-    boolean hasFillAndStroke = hasFill && hasStroke;
-
-    if ((hasFillAndStroke && applyStrokeIfBothSet) || (!hasFill && hasStroke)) {
-      paint.setStyle(Style.STROKE);
-      paint.setShader(object.shader);
-      paint.setARGB(
-          (int) (object.strokeOpacity * 255),
-          Color.red(object.stroke),
-          Color.green(object.stroke),
-          Color.blue(object.stroke)
+  private void applyRotation(SvgObject object, float rotation) {
+    object.rotation = rotation;
+    if (!object.type.equals(SvgObject.TYPE_GROUP)) {
+      getRotatedPoint(
+          object.cx, object.cy, object.rotationX, object.rotationY, object.rotation, pointF
       );
-      paint.setStrokeWidth(object.strokeWidth * pixelUnit * scale);
-      if (object.strokeLineCap != null) {
-        switch (object.strokeLineCap) {
-          case SvgObject.LINE_CAP_BUTT:
-            paint.setStrokeCap(Cap.BUTT);
-            break;
-          case SvgObject.LINE_CAP_ROUND:
-            paint.setStrokeCap(Cap.ROUND);
-            break;
-          case SvgObject.LINE_CAP_SQUARE:
-            paint.setStrokeCap(Cap.SQUARE);
-            break;
-        }
-      }
-      if (object.strokeLineJoin != null) {
-        switch (object.strokeLineJoin) {
-          case SvgObject.LINE_JOIN_MITER:
-            paint.setStrokeJoin(Join.MITER);
-            break;
-          case SvgObject.LINE_JOIN_ROUND:
-            paint.setStrokeJoin(Join.ROUND);
-            break;
-          case SvgObject.LINE_JOIN_BEVEL:
-            paint.setStrokeJoin(Join.BEVEL);
-            break;
-        }
-      }
-    } else if (hasFillAndStroke || hasFill) {
-      paint.setStyle(Style.FILL);
-      paint.setShader(object.shader);
-      paint.setColor(ColorUtils.setAlphaComponent(object.fill, (int) (object.fillOpacity * 255)));
-    }
-
-    if (DEBUG) { // draw semi-translucent for point/pivot debugging
-      paint.setAlpha(150);
+      object.cx = pointF.x;
+      object.cy = pointF.y;
     }
+  }
 
-    return hasFillAndStroke;
+  private void applyTranslation(SvgObject object, float translationX, float translationY) {
+    object.translationX = translationX / svgWidth;
+    object.translationY = translationY / svgHeight;
   }
 
-  private void skip(XmlPullParser parser) throws XmlPullParserException, IOException {
-    if (parser.getEventType() != XmlPullParser.START_TAG) {
-      throw new IllegalStateException();
-    }
-    int depth = 1;
-    while (depth != 0) {
-      switch (parser.next()) {
-        case XmlPullParser.END_TAG:
-          depth--;
-          break;
-        case XmlPullParser.START_TAG:
-          depth++;
-          break;
-      }
-    }
+  private void readStyle(SvgScanner parser, SvgObject object) {
+    object.fill = parseColor(parser.getAttributeString("fill"));
+    object.stroke = parseColor(parser.getAttributeString("stroke"));
+    object.fillOpacity = parser.getAttributeFloat("fill-opacity", 1);
+    object.strokeOpacity = parser.getAttributeFloat("stroke-opacity", 1);
+    object.strokeWidth = parser.getAttributeFloat("stroke-width", 0);
+    object.strokeLineCap = parser.getAttributeString("stroke-linecap");
+    object.strokeLineJoin = parser.getAttributeString("stroke-linejoin");
   }
 
   public static class SvgObject {
@@ -999,19 +2121,42 @@ public class SvgDrawable {
     public String strokeLineCap, strokeLineJoin;
     public float strokeWidth;
     public Shader shader;
+    // Paints built from the style above, only rebuilt if one of the style fields changes
+    private Paint fillPaint, strokePaint;
+    // Images are drawn without style, so their paint never changes
+    private Paint imagePaint;
+    private int fillPaintColor, strokePaintColor;
+    private float fillPaintOpacity, strokePaintOpacity;
+    private Shader fillPaintShader, strokePaintShader;
+    private String strokePaintLineCap, strokePaintLineJoin;
+    // Incremented whenever a paint changes, so recordings of the object can be renewed
+    private int paintVersion;
+    // Recordings of the path and the simplified path, see drawPath
+    private PathRecording recording, simpleRecording;
+    // Bounds of the path before any transformation, tracked by the path data since loading
+    private RectF pathBounds;
+    // Screen bounds of top-level objects, measured and drawn, see getDirtyRegion()
+    private final RectF screenBounds = new RectF();
+    private final RectF drawnScreenBounds = new RectF();
 
     // TRANSFORMATION
     public float rotation, rotationX, rotationY;
+    // sin and cos of rotation, only calculated again if the rotation changes
+    private float sinCosRotation = Float.NaN;
+    private float rotationSin, rotationCos;
     public float translationX, translationY;
     public float scale;
 
     // PATH
     public Path path;
+    public PathData pathData;
+    // Simplified path data for drawing in motion or null if the path is simple enough
+    public PathData simplePathData;
 
     // RECT/IMAGE
     public float width, height;
     public float rx, ry;
-    public Bitmap bitmap;
+    public SvgImage image;
 
     // CIRCLE
     public float cx, cy;
@@ -1021,6 +2166,220 @@ public class SvgDrawable {
       this.type = type;
     }
 
+    /**
+     * Copies all fields, children are copied too but paths and images are shared and paints and
+     * recordings are made again when the copy is drawn
+     */
+    public SvgObject(@NonNull SvgObject object) {
+      id = object.id;
+      type = object.type;
+      isInGroup = object.isInGroup;
+      elevation = object.elevation;
+      zoomRotation = object.zoomRotation;
+      isRotatable = object.isRotatable;
+      pivotOffsetX = object.pivotOffsetX;
+      pivotOffsetY = object.pivotOffsetY;
+
+      if (object.children != null) {
+        children = new ArrayList<>(object.children.size());
+        for (SvgObject child : object.children) {
+          children.add(new SvgObject(child));
+        }
+      }
+      cxFinal = object.cxFinal;
+      cyFinal = object.cyFinal;
+      childScale = object.childScale;
+      xDistGroupCenter = object.xDistGroupCenter;
+      yDistGroupCenter = object.yDistGroupCenter;
+
+      fill = object.fill;
+      stroke = object.stroke;
+      fillOpacity = object.fillOpacity;
+      strokeOpacity = object.strokeOpacity;
+      strokeLineCap = object.strokeLineCap;
+      strokeLineJoin = object.strokeLineJoin;
+      strokeWidth = object.strokeWidth;
+      shader = object.shader;
+
+      rotation = object.rotation;
+      sinCosRotation = object.sinCosRotation;
+      rotationSin = object.rotationSin;
+      rotationCos = object.rotationCos;
+      rotationX = object.rotationX;
+      rotationY = object.rotationY;
+      translationX = object.translationX;
+      translationY = object.translationY;
+      scale = object.scale;
+
+      path = object.path;
+      pathData = object.pathData;
+      pathBounds = object.pathBounds;
+      simplePathData = object.simplePathData;
+
+      width = object.width;
+      height = object.height;
+      rx = object.rx;
+      ry = object.ry;
+      image = object.image;
+
+      cx = object.cx;
+      cy = object.cy;
+      r = object.r;
+    }
+
+    public float getRotationSin() {
+      updateSinCos();
+      return rotationSin;
+    }
+
+    public float getRotationCos() {
+      updateSinCos();
+      return rotationCos;
+    }
+
+    /**
+     * Sets the loaded path, its bounds are kept up to date by PathData.scale()
+     */
+    void setPathData(@NonNull PathData pathData) {
+      this.pathData = pathData;
+      path = pathData.path;
+      pathBounds = pathData.bounds;
+    }
+
+    @NonNull
+    RectF getPathBounds() {
+      return pathBounds;
+    }
+
+    public boolean hasFill() {
+      return fill != 0;
+    }
+
+    public boolean hasStroke() {
+      return stroke != 0 && strokeWidth > 0;
+    }
+
+    @NonNull
+    public Paint getFillPaint() {
+      if (fillPaint == null
+          || fill != fillPaintColor
+          || fillOpacity != fillPaintOpacity
+          || shader != fillPaintShader) {
+        if (fillPaint == null) {
+          fillPaint = new Paint();
+        } else {
+          fillPaint.reset();
+        }
+        fillPaint.setAntiAlias(true);
+        fillPaint.setStyle(Style.FILL);
+        fillPaint.setShader(shader);
+        fillPaint.setColor(ColorUtils.setAlphaComponent(fill, (int) (fillOpacity * 255)));
+        if (DEBUG) { // draw semi-translucent for point/pivot debugging
+          fillPaint.setAlpha(150);
+        }
+        fillPaintColor = fill;
+        fillPaintOpacity = fillOpacity;
+        fillPaintShader = shader;
+        paintVersion++;
+      }
+      return fillPaint;
+    }
+
+    @NonNull
+    PathRecording getRecording(boolean simple) {
+      if (simple) {
+        if (simpleRecording == null) {
+          simpleRecording = new PathRecording();
+        }
+        return simpleRecording;
+      }
+      if (recording == null) {
+        recording = new PathRecording();
+      }
+      return recording;
+    }
+
+    @NonNull
+    Paint getImagePaint() {
+      if (imagePaint == null) {
+        imagePaint = new Paint();
+        imagePaint.setAntiAlias(true);
+      }
+      return imagePaint;
+    }
+
+    /**
+     * @param width final stroke width, only this is applied again if nothing else has changed
+     */
+    @NonNull
+    public Paint getStrokePaint(float width) {
+      if (strokePaint == null
+          || stroke != strokePaintColor
+          || strokeOpacity != strokePaintOpacity
+          || shader != strokePaintShader
+          || !Objects.equals(strokeLineCap, strokePaintLineCap)
+          || !Objects.equals(strokeLineJoin, strokePaintLineJoin)) {
+        if (strokePaint == null) {
+          strokePaint = new Paint();
+        } else {
+          strokePaint.reset();
+        }
+        strokePaint.setAntiAlias(true);
+        strokePaint.setStyle(Style.STROKE);
+        strokePaint.setShader(shader);
+        strokePaint.setARGB(
+            (int) (strokeOpacity * 255), Color.red(stroke), Color.green(stroke), Color.blue(stroke)
+        );
+        strokePaint.setStrokeCap(getCap(strokeLineCap));
+        strokePaint.setStrokeJoin(getJoin(strokeLineJoin));
+        if (DEBUG) { // draw semi-translucent for point/pivot debugging
+          strokePaint.setAlpha(150);
+        }
+        strokePaintColor = stroke;
+        strokePaintOpacity = strokeOpacity;
+        strokePaintShader = shader;
+        strokePaintLineCap = strokeLineCap;
+        strokePaintLineJoin = strokeLineJoin;
+        paintVersion++;
+      }
+      if (strokePaint.getStrokeWidth() != width) {
+        strokePaint.setStrokeWidth(width);
+        paintVersion++;
+      }
+      return strokePaint;
+    }
+
+    @NonNull
+    private static Cap getCap(@Nullable String lineCap) {
+      if (LINE_CAP_ROUND.equals(lineCap)) {
+        return Cap.ROUND;
+      } else if (LINE_CAP_SQUARE.equals(lineCap)) {
+        return Cap.SQUARE;
+      } else {
+        return Cap.BUTT;
+      }
+    }
+
+    @NonNull
+    private static Join getJoin(@Nullable String lineJoin) {
+      if (LINE_JOIN_ROUND.equals(lineJoin)) {
+        return Join.ROUND;
+      } else if (LINE_JOIN_BEVEL.equals(lineJoin)) {
+        return Join.BEVEL;
+      } else {
+        return Join.MITER;
+      }
+    }
+
+    private void updateSinCos() {
+      if (rotation != sinCosRotation) {
+        double radians = Math.toRadians(rotation);
+        rotationSin = (float) Math.sin(radians);
+        rotationCos = (float) Math.cos(radians);
+        sinCosRotation = rotation;
+      }
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -1032,27 +2391,289 @@ public class SvgDrawable {
     }
   }
 
-  private float parseFloat(String value) {
-    if (value != null && !value.isEmpty()) {
-      try {
-        return Float.parseFloat(value);
-      } catch (NumberFormatException e) {
-        return 0;
+  /**
+   * Path recorded into a render node (API 29+) or a picture with the paint version and the bounds
+   * of the recording
+   */
+  private static class PathRecording {
+
+    @Nullable
+    RenderNode renderNode;
+    @Nullable
+    Picture picture;
+    int paintVersion;
+    int left, top, width, height;
+  }
+
+  private static class DepthLayer {
+
+    final List<SvgObject> objects = new ArrayList<>();
+    // Average elevation of the objects
+    float elevation;
+    // Not rasterized, the objects are drawn directly
+    boolean isDirect;
+    @Nullable
+    Bitmap bitmap;
+    // Area of the bitmap in canvas coordinates without offset and zoom
+    final RectF bounds = new RectF();
+  }
+
+  /**
+   * Bitmap of an image object, which is decoded from its asset or embedded data when it is needed.
+   * It is downsampled to the size it can reach on screen and only decoded again if that size
+   * changes significantly.
+   */
+  public static class SvgImage {
+
+    private final AssetManager assets;
+    private final String fileName;
+    private final byte[] data;
+    // Pixels of a previous decode, e.g. mapped from SvgDiskCache
+    private ByteBuffer pixels;
+    private int pixelsWidth, pixelsHeight;
+    private int pixelsTargetWidth, pixelsTargetHeight;
+    private volatile Bitmap bitmap;
+    private volatile int targetWidth, targetHeight;
+    private boolean isFailed;
+    private final AtomicBoolean isDecodeQueued = new AtomicBoolean();
+    private static volatile boolean useHardwareBitmaps;
+
+    public SvgImage(@NonNull AssetManager assets, @NonNull String fileName) {
+      this.assets = assets;
+      this.fileName = fileName;
+      data = null;
+    }
+
+    /**
+     * @param data encoded image, e.g. embedded in the SVG
+     */
+    public SvgImage(@NonNull byte[] data) {
+      assets = null;
+      fileName = null;
+      this.data = data;
+    }
+
+    /**
+     * @return the decoded bitmap or null if it is not decoded yet, see decode()
+     */
+    @Nullable
+    public Bitmap getBitmap() {
+      return bitmap;
+    }
+
+    /**
+     * @return memory of the decoded bitmap, hardware bitmaps included, or 0 if not decoded
+     */
+    public long getByteCount() {
+      Bitmap bitmap = this.bitmap;
+      // All images are decoded as ARGB_8888
+      return bitmap != null ? bitmap.getWidth() * bitmap.getHeight() * 4L : 0;
+    }
+
+    /**
+     * @return true if the image is not decoded yet or the decoded size doesn't fit the size on
+     * screen anymore: too small (blurry) or more than twice as large (wasted memory)
+     */
+    public boolean needsDecode(int width, int height) {
+      Bitmap bitmap = this.bitmap;
+      if (bitmap == null) {
+        return !isFailed;
       }
-    } else {
-      return 0;
+      return BitmapPool.isHardware(bitmap) != useHardwareBitmaps
+          || isResizeNeeded(targetWidth, targetHeight, width, height);
     }
-  }
 
-  private float parseOpacity(String value) {
-    if (value != null && !value.isEmpty()) {
-      try {
-        return Float.parseFloat(value);
-      } catch (NumberFormatException e) {
-        return 0;
+    /**
+     * Hardware bitmaps are only used on API 26+ and can only be drawn on hardware-accelerated
+     * canvases. This applies to all images, as they are shared between all drawables.
+     */
+    public static void setUseHardwareBitmaps(boolean use) {
+      useHardwareBitmaps = use && VERSION.SDK_INT >= VERSION_CODES.O;
+    }
+
+    /**
+     * Decodes the image for the given size on screen if needed, the previous bitmap can still be
+     * drawn until the new one is ready
+     */
+    public synchronized void decode(int width, int height) {
+      if (!needsDecode(width, height)) {
+        return;
       }
-    } else {
-      return 1;
+      boolean useHardware = useHardwareBitmaps;
+      Bitmap decoded;
+      if (pixels != null
+          && !isResizeNeeded(pixelsTargetWidth, pixelsTargetHeight, width, height)) {
+        decoded = decodePixels(useHardware);
+        width = pixelsTargetWidth;
+        height = pixelsTargetHeight;
+      } else {
+        decoded = decodeSampled(width, height, useHardware);
+      }
+      if (decoded == null) {
+        Log.e(TAG, "decode: could not decode image " + (fileName != null ? fileName : ""));
+        isFailed = bitmap == null;
+        return;
+      }
+      targetWidth = width;
+      targetHeight = height;
+      bitmap = decoded;
+    }
+
+    /**
+     * Runs decode() on the executor unless it is already queued there
+     *
+     * @param onDecoded called on the executor if the image has a new bitmap afterwards
+     */
+    void decodeAsync(Executor executor, int width, int height, Runnable onDecoded) {
+      if (!isDecodeQueued.compareAndSet(false, true)) {
+        return;
+      }
+      executor.execute(() -> {
+        Bitmap previous = bitmap;
+        try {
+          decode(width, height);
+        } finally {
+          isDecodeQueued.set(false);
+        }
+        if (bitmap != previous) {
+          onDecoded.run();
+        }
+      });
+    }
+
+    /**
+     * Puts the bitmap into the BitmapPool, the image must not be drawn anymore
+     */
+    synchronized void release() {
+      if (bitmap != null) {
+        BitmapPool.put(bitmap);
+        bitmap = null;
+      }
+    }
+
+    @Nullable
+    String getFileName() {
+      return fileName;
+    }
+
+    @Nullable
+    byte[] getData() {
+      return data;
+    }
+
+    int getTargetWidth() {
+      return targetWidth;
+    }
+
+    int getTargetHeight() {
+      return targetHeight;
+    }
+
+    /**
+     * @param pixels raw ARGB_8888 pixels of a previous decode for the given target size
+     */
+    synchronized void setCachedPixels(
+        @NonNull ByteBuffer pixels, int width, int height, int targetWidth, int targetHeight
+    ) {
+      this.pixels = pixels;
+      pixelsWidth = width;
+      pixelsHeight = height;
+      pixelsTargetWidth = targetWidth;
+      pixelsTargetHeight = targetHeight;
+    }
+
+    @Nullable
+    private Bitmap decodePixels(boolean useHardware) {
+      Bitmap decoded = useHardware ? null : BitmapPool.get(pixels.capacity());
+      if (decoded != null) {
+        decoded.reconfigure(pixelsWidth, pixelsHeight, Bitmap.Config.ARGB_8888);
+      } else {
+        decoded = Bitmap.createBitmap(pixelsWidth, pixelsHeight, Bitmap.Config.ARGB_8888);
+      }
+      decoded.copyPixelsFromBuffer(pixels.duplicate());
+      if (useHardware) {
+        Bitmap hardware = decoded.copy(Bitmap.Config.HARDWARE, false);
+        if (hardware != null) {
+          decoded.recycle();
+          return hardware;
+        }
+      }
+      return decoded;
+    }
+
+    /**
+     * Uses the largest inSampleSize which keeps the target size and scales the rest of the way
+     * with inDensity while decoding. Images are never scaled up. Software bitmaps are mutable and
+     * decoded into a bitmap of the BitmapPool if possible.
+     */
+    @Nullable
+    private Bitmap decodeSampled(int width, int height, boolean useHardware) {
+      width = Math.max(width, 1);
+      height = Math.max(height, 1);
+      BitmapFactory.Options options = new BitmapFactory.Options();
+      options.inJustDecodeBounds = true;
+      decodeSource(options);
+      if (options.outWidth <= 0 || options.outHeight <= 0) {
+        return null;
+      }
+      options.inJustDecodeBounds = false;
+      options.inSampleSize = 1;
+      while (options.outWidth / (options.inSampleSize * 2) >= width
+          && options.outHeight / (options.inSampleSize * 2) >= height) {
+        options.inSampleSize *= 2;
+      }
+      int sampledWidth = options.outWidth / options.inSampleSize;
+      int sampledHeight = options.outHeight / options.inSampleSize;
+      // Keep the aspect ratio, the dimension with the smaller reduction decides
+      if ((float) width / sampledWidth >= (float) height / sampledHeight) {
+        if (sampledWidth > width) {
+          options.inDensity = sampledWidth;
+          options.inTargetDensity = width;
+        }
+      } else if (sampledHeight > height) {
+        options.inDensity = sampledHeight;
+        options.inTargetDensity = height;
+      }
+      options.inScaled = options.inDensity != 0;
+
+      if (useHardware) {
+        options.inPreferredConfig = Bitmap.Config.HARDWARE;
+        return decodeSource(options);
+      }
+      options.inMutable = true;
+      float ratio = options.inScaled ? (float) options.inTargetDensity / options.inDensity : 1;
+      // One more row and column for rounding of the decoder
+      int byteCount = (int) (sampledWidth * ratio + 2) * (int) (sampledHeight * ratio + 2) * 4;
+      options.inBitmap = BitmapPool.get(byteCount);
+      if (options.inBitmap != null) {
+        try {
+          return decodeSource(options);
+        } catch (IllegalArgumentException e) {
+          Log.w(TAG, "decodeSampled: pooled bitmap can't be reused", e);
+          options.inBitmap = null;
+        }
+      }
+      return decodeSource(options);
+    }
+
+    @Nullable
+    private Bitmap decodeSource(BitmapFactory.Options options) {
+      if (data != null) {
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+      } else if (assets != null) {
+        try (InputStream input = assets.open(fileName)) {
+          return BitmapFactory.decodeStream(input, null, options);
+        } catch (IOException e) {
+          Log.e(TAG, "decodeSource: could not open image '" + fileName + "'", e);
+        }
+      }
+      return null;
+    }
+
+    private static boolean isResizeNeeded(
+        int decodedWidth, int decodedHeight, int width, int height
+    ) {
+      return width > decodedWidth || height > decodedHeight || width * 2 < decodedWidth;
     }
   }
 
@@ -1080,7 +2701,12 @@ public class SvgDrawable {
     }
   }
 
-  private PointF getRotatedPoint(float x, float y, float cx, float cy, float degrees) {
+  /**
+   * Only used while loading, drawing uses the cached values of SvgObject.getRotationSin/Cos()
+   */
+  private static void getRotatedPoint(
+      float x, float y, float cx, float cy, float degrees, PointF result
+  ) {
     double radians = Math.toRadians(degrees);
 
     float x1 = x - cx;
@@ -1089,18 +2715,23 @@ public class SvgDrawable {
     float x2 = (float) (x1 * Math.cos(radians) - y1 * Math.sin(radians));
     float y2 = (float) (x1 * Math.sin(radians) + y1 * Math.cos(radians));
 
-    return new PointF(x2 + cx, y2 + cy);
+    result.set(x2 + cx, y2 + cy);
   }
 
-  private PointF getFinalCenter(Canvas canvas, SvgObject object, SvgObject parentGroup) {
+  /**
+   * Called for every object with every frame, so nothing is allocated here
+   *
+   * @param result is set to the final center
+   */
+  private void getFinalCenter(SvgObject object, SvgObject parentGroup, PointF result) {
     float cx;
     float cy;
     if (object.isInGroup) {
       cx = parentGroup.cxFinal + object.xDistGroupCenter * parentGroup.childScale;
       cy = parentGroup.cyFinal + object.yDistGroupCenter * parentGroup.childScale;
     } else {
-      cx = object.cx * canvas.getWidth() + object.translationX * canvas.getWidth();
-      cy = object.cy * canvas.getHeight() + object.translationY * canvas.getHeight();
+      cx = object.cx * canvasWidth + object.translationX * canvasWidth;
+      cy = object.cy * canvasHeight + object.translationY * canvasHeight;
     }
 
     float cxShifted = cx - (offsetX * object.elevation);
@@ -1108,11 +2739,15 @@ public class SvgDrawable {
 
     // We need to compensate the object rotation, else the object would shift in that direction
     // This is caused by the canvas rotation, but that's how objects can be rotated
-    PointF compensated = getRotatedPoint(cxShifted, cyShifted, cx, cy, -object.rotation);
-    cx = compensated.x;
-    cy = compensated.y;
-
-    float centerX = canvas.getWidth() / 2f;
+    // Rotation of the shifted center around the center with the negative object rotation
+    float x1 = cxShifted - cx;
+    float y1 = cyShifted - cy;
+    float sin = object.getRotationSin();
+    float cos = object.getRotationCos();
+    cx += x1 * cos + y1 * sin;
+    cy += -x1 * sin + y1 * cos;
+
+    float centerX = canvasWidth / 2f;
     if (cx < centerX) {
       float dist = centerX - cx;
       cx += dist * object.elevation * zoom;
@@ -1121,7 +2756,7 @@ public class SvgDrawable {
       cx -= dist * object.elevation * zoom;
     }
 
-    float centerY = canvas.getHeight() / 2f;
+    float centerY = canvasHeight / 2f;
     if (cy < centerY) {
       float dist = centerY - cy;
       cy += dist * object.elevation * zoom;
@@ -1129,7 +2764,7 @@ public class SvgDrawable {
       float dist = cy - centerY;
       cy -= dist * object.elevation * zoom;
     }
-    return new PointF(cx, cy);
+    result.set(cx, cy);
   }
 
   private float getFinalScale(SvgObject object, SvgObject parentGroup) {
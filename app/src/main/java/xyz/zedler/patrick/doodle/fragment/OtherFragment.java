@@ -52,6 +52,7 @@ import xyz.zedler.patrick.doodle.activity.MainActivity;
 import xyz.zedler.patrick.doodle.behavior.ScrollBehavior;
 import xyz.zedler.patrick.doodle.behavior.SystemBarBehavior;
 import xyz.zedler.patrick.doodle.databinding.FragmentOtherBinding;
+import xyz.zedler.patrick.doodle.drawable.SvgDrawable;
 import xyz.zedler.patrick.doodle.model.Language;
 import xyz.zedler.patrick.doodle.service.LiveWallpaperService;
 import xyz.zedler.patrick.doodle.util.LocaleUtil;
@@ -115,6 +116,10 @@ public class OtherFragment extends BaseFragment
         gpuOptionEnabled && getSharedPrefs().getBoolean(PREF.GPU, DEF.GPU)
     );
 
+    binding.switchOtherDepthLayers.setChecked(
+        getSharedPrefs().getInt(PREF.DEPTH_LAYERS, DEF.DEPTH_LAYERS) > 0
+    );
+
     binding.switchOtherLauncher.setChecked(
         activity.getPackageManager().getComponentEnabledSetting(
             new ComponentName(activity, LauncherActivity.class)
@@ -156,6 +161,7 @@ public class OtherFragment extends BaseFragment
     ViewUtil.setOnClickListeners(
         this,
         binding.linearOtherLanguage,
+        binding.linearOtherDepthLayers,
         binding.linearOtherLauncher,
         binding.linearOtherReset
     );
@@ -163,6 +169,7 @@ public class OtherFragment extends BaseFragment
     ViewUtil.setOnCheckedChangeListeners(
         this,
         binding.switchOtherGpu,
+        binding.switchOtherDepthLayers,
         binding.switchOtherLauncher
     );
   }
@@ -177,6 +184,9 @@ public class OtherFragment extends BaseFragment
     } else if (id == R.id.linear_other_gpu) {
       ViewUtil.startIcon(binding.imageOtherGpu);
       binding.switchOtherGpu.setChecked(!binding.switchOtherGpu.isChecked());
+    } else if (id == R.id.linear_other_depth_layers) {
+      ViewUtil.startIcon(binding.imageOtherDepthLayers);
+      binding.switchOtherDepthLayers.setChecked(!binding.switchOtherDepthLayers.isChecked());
     } else if (id == R.id.linear_other_launcher) {
       ViewUtil.startIcon(binding.imageOtherLauncher);
       binding.switchOtherLauncher.setChecked(!binding.switchOtherLauncher.isChecked());
@@ -210,6 +220,12 @@ public class OtherFragment extends BaseFragment
       getSharedPrefs().edit().putBoolean(PREF.GPU, isChecked).apply();
       performHapticClick();
       activity.showForceStopRequest(NavMainDirections.actionGlobalApplyDialog());
+    } else if (id == R.id.switch_other_depth_layers) {
+      getSharedPrefs().edit().putInt(
+          PREF.DEPTH_LAYERS, isChecked ? SvgDrawable.DEFAULT_DEPTH_LAYER_COUNT : 0
+      ).apply();
+      performHapticClick();
+      activity.requestSettingsRefresh();
     } else if (id == R.id.switch_other_launcher) {
       performHapticClick();
       if (isChecked) {
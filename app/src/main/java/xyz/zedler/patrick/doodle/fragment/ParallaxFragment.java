@@ -96,6 +96,42 @@ public class ParallaxFragment extends BaseFragment
         getSharedPrefs().getBoolean(PREF.POWER_SAVE_SWIPE, DEF.POWER_SAVE_SWIPE)
     );
 
+    int id;
+    switch (getSharedPrefs().getInt(PREF.FRAME_RATE, DEF.FRAME_RATE)) {
+      case 90:
+        id = R.id.button_parallax_frame_rate_90;
+        break;
+      case 60:
+        id = R.id.button_parallax_frame_rate_60;
+        break;
+      case 30:
+        id = R.id.button_parallax_frame_rate_30;
+        break;
+      default:
+        id = R.id.button_parallax_frame_rate_native;
+        break;
+    }
+    binding.toggleParallaxFrameRate.check(id);
+    binding.toggleParallaxFrameRate.addOnButtonCheckedListener((group, checkedId, isChecked) -> {
+      if (!isChecked) {
+        return;
+      }
+      int pref;
+      if (checkedId == R.id.button_parallax_frame_rate_90) {
+        pref = 90;
+      } else if (checkedId == R.id.button_parallax_frame_rate_60) {
+        pref = 60;
+      } else if (checkedId == R.id.button_parallax_frame_rate_30) {
+        pref = 30;
+      } else {
+        pref = 0;
+      }
+      getSharedPrefs().edit().putInt(PREF.FRAME_RATE, pref).apply();
+      ViewUtil.startIcon(binding.imageParallaxFrameRate);
+      activity.requestSettingsRefresh();
+      performHapticClick();
+    });
+
     binding.linearParallaxTiltContainer.setVisibility(
         SensorUtil.hasAccelerometer(activity) ? View.VISIBLE : View.GONE
     );
@@ -19,16 +19,16 @@
 
 package xyz.zedler.patrick.doodle.parser;
 
+import android.graphics.Matrix;
 import android.graphics.Path;
 import android.graphics.RectF;
-import android.util.Log;
+import androidx.annotation.NonNull;
+import java.util.Arrays;
 
 public class PathParser {
 
-  private static final String TAG = PathParser.class.getSimpleName();
-
   /*
-   * This is where the hard-to-parse paths are handled.
+   * Parses the full SVG path data grammar, including arcs and implicit commands.
    * Uppercase rules are absolute positions, lowercase are relative.
    * Types of path rules:
    * <p/>
@@ -42,36 +42,46 @@ public class PathParser {
    * <li>S/s - (x2 y2 x y)+ - Smooth cubic bezier to (shorthand that assumes the x2, y2 from previous C/S is the x1, y1 of this bezier)
    * <li>Q/q - (x1 y1 x y)+ - Quadratic bezier to
    * <li>T/t - (x y)+ - Smooth quadratic bezier to (assumes previous control point is "reflection" of last one w.r.t. to current point)
+   * <li>A/a - (rx ry angle large-arc sweep x y)+ - Elliptical arc, converted to cubic beziers
    * </ol>
    * <p/>
    * Numbers are separate by whitespace, comma or nothing at all (!) if they are self-delimiting, (ie. begin with a - sign)
+   * <p/>
+   * The path is built in a single pass without any allocations per command, together with its
+   * bounds and verb statistics.
+   *
+   * @throws IllegalArgumentException if the path data contains invalid commands or characters
    */
-  public static Path getPath(String s) {
+  @NonNull
+  public static PathData parse(@NonNull CharSequence s) {
     int n = s.length();
+    PathData data = new PathData();
+    if (n == 0) {
+      return data.finish();
+    }
     ParserHelper ph = new ParserHelper(s);
     ph.skipWhitespace();
-    Path p = new Path();
     float lastX = 0;
     float lastY = 0;
     float lastX1 = 0;
     float lastY1 = 0;
     float contourInitialX = 0;
     float contourInitialY = 0;
-    RectF r = new RectF();
     char prevCmd = 'm';
     char cmd = 'x';
     while (ph.pos < n) {
       char next = s.charAt(ph.pos);
-      if (!Character.isDigit(next) && !(next == '.') && !(next == '-')) {
+      if (!Character.isDigit(next) && next != '.' && next != '-' && next != '+') {
         cmd = next;
         ph.advance();
       } else if (cmd == 'M') { // implied command
         cmd = 'L';
       } else if (cmd == 'm') { // implied command
         cmd = 'l';
+      } else if (cmd == 'x' || cmd == 'Z' || cmd == 'z') {
+        throw new IllegalArgumentException("Unexpected number without command at " + ph.pos);
       }
 
-      p.computeBounds(r, true);
       boolean wasCurve = false;
       switch (cmd) {
         case 'M':
@@ -79,22 +89,20 @@ public class PathParser {
           float x = ph.nextFloat();
           float y = ph.nextFloat();
           if (cmd == 'm') {
-            p.rMoveTo(x, y);
             lastX += x;
             lastY += y;
           } else {
-            p.moveTo(x, y);
             lastX = x;
             lastY = y;
           }
+          data.moveTo(lastX, lastY);
           contourInitialX = lastX;
           contourInitialY = lastY;
           break;
         }
         case 'Z':
         case 'z': {
-          /// p.lineTo(contourInitialX, contourInitialY);
-          p.close();
+          data.close();
           lastX = contourInitialX;
           lastY = contourInitialY;
           break;
@@ -104,46 +112,31 @@ public class PathParser {
           float x = ph.nextFloat();
           float y = ph.nextFloat();
           if (cmd == 'l') {
-            if ((prevCmd == 'M' || prevCmd == 'm') && x == 0 && y == 0) {
-              p.addCircle(x, y, 1f, Path.Direction.CW);
-            } else {
-              p.rLineTo(x, y);
-              lastX += x;
-              lastY += y;
-            }
+            x += lastX;
+            y += lastY;
+          }
+          if ((prevCmd == 'M' || prevCmd == 'm') && x == lastX && y == lastY) {
+            // zero-length line after move, draw it as a dot
+            data.addDot(x, y, 1);
           } else {
-            if ((prevCmd == 'M' || prevCmd == 'm') && x == lastX && y == lastY) {
-              p.addCircle(x, y, 1f, Path.Direction.CW);
-            } else {
-              p.lineTo(x, y);
-              lastX = x;
-              lastY = y;
-            }
+            data.lineTo(x, y);
+            lastX = x;
+            lastY = y;
           }
           break;
         }
         case 'H':
         case 'h': {
           float x = ph.nextFloat();
-          if (cmd == 'h') {
-            p.rLineTo(x, 0);
-            lastX += x;
-          } else {
-            p.lineTo(x, lastY);
-            lastX = x;
-          }
+          lastX = cmd == 'h' ? lastX + x : x;
+          data.lineTo(lastX, lastY);
           break;
         }
         case 'V':
         case 'v': {
           float y = ph.nextFloat();
-          if (cmd == 'v') {
-            p.rLineTo(0, y);
-            lastY += y;
-          } else {
-            p.lineTo(lastX, y);
-            lastY = y;
-          }
+          lastY = cmd == 'v' ? lastY + y : y;
+          data.lineTo(lastX, lastY);
           break;
         }
         case 'C':
@@ -163,7 +156,7 @@ public class PathParser {
             y2 += lastY;
             y += lastY;
           }
-          p.cubicTo(x1, y1, x2, y2, x, y);
+          data.cubicTo(x1, y1, x2, y2, x, y);
           lastX1 = x2;
           lastY1 = y2;
           lastX = x;
@@ -185,7 +178,7 @@ public class PathParser {
           }
           float x1 = 2 * lastX - lastX1;
           float y1 = 2 * lastY - lastY1;
-          p.cubicTo(x1, y1, x2, y2, x, y);
+          data.cubicTo(x1, y1, x2, y2, x, y);
           lastX1 = x2;
           lastY1 = y2;
           lastX = x;
@@ -197,15 +190,15 @@ public class PathParser {
           float rx = ph.nextFloat();
           float ry = ph.nextFloat();
           float theta = ph.nextFloat();
-          int largeArc = (int) ph.nextFloat();
-          int sweepArc = (int) ph.nextFloat();
+          boolean largeArc = ph.nextFlag();
+          boolean sweepArc = ph.nextFlag();
           float x = ph.nextFloat();
           float y = ph.nextFloat();
           if (cmd == 'a') {
             x += lastX;
             y += lastY;
           }
-          drawArc(p, lastX, lastY, x, y, rx, ry, theta, largeArc == 1, sweepArc == 1);
+          drawArc(data, lastX, lastY, x, y, rx, ry, theta, largeArc, sweepArc);
           lastX = x;
           lastY = y;
           break;
@@ -221,7 +214,7 @@ public class PathParser {
           }
           float x1 = 2 * lastX - lastX1;
           float y1 = 2 * lastY - lastY1;
-          p.cubicTo(lastX, lastY, x1, y1, x, y);
+          data.quadTo(x1, y1, x, y);
           lastX = x;
           lastY = y;
           lastX1 = x1;
@@ -241,7 +234,7 @@ public class PathParser {
             x1 += lastX;
             y1 += lastY;
           }
-          p.cubicTo(lastX, lastY, x1, y1, x, y);
+          data.quadTo(x1, y1, x, y);
           lastX1 = x1;
           lastY1 = y1;
           lastX = x;
@@ -249,8 +242,7 @@ public class PathParser {
           break;
         }
         default:
-          Log.w(TAG, "Invalid path command: " + cmd);
-          ph.advance();
+          throw new IllegalArgumentException("Invalid path command '" + cmd + "'");
       }
       prevCmd = cmd;
       if (!wasCurve) {
@@ -259,38 +251,46 @@ public class PathParser {
       }
       ph.skipWhitespace();
     }
-    return p;
+    return data.finish();
   }
 
   /*
-   * Elliptical arc implementation based on the SVG specification notes
+   * Elliptical arc implementation based on the SVG specification notes (F.6.5 and F.6.6),
+   * split into cubic bezier segments of max. 90 degrees so no oval has to be allocated
    * Adapted from the Batik library (Apache-2 license) by SAU
    */
-  private static void drawArc(Path path, double x0, double y0, double x, double y, double rx,
-      double ry, double angle, boolean largeArcFlag, boolean sweepFlag) {
+  private static void drawArc(PathData data, float x0, float y0, float x, float y,
+      float rx, float ry, float angle, boolean largeArcFlag, boolean sweepFlag) {
+    if (x0 == x && y0 == y) {
+      return;
+    }
+    if (rx == 0 || ry == 0) {
+      data.lineTo(x, y);
+      return;
+    }
     double dx2 = (x0 - x) / 2.0;
     double dy2 = (y0 - y) / 2.0;
-    angle = Math.toRadians(angle % 360.0);
-    double cosAngle = Math.cos(angle);
-    double sinAngle = Math.sin(angle);
+    double phi = Math.toRadians(angle % 360.0);
+    double cosAngle = Math.cos(phi);
+    double sinAngle = Math.sin(phi);
 
     double x1 = (cosAngle * dx2 + sinAngle * dy2);
     double y1 = (-sinAngle * dx2 + cosAngle * dy2);
-    rx = Math.abs(rx);
-    ry = Math.abs(ry);
+    double radiusX = Math.abs(rx);
+    double radiusY = Math.abs(ry);
 
-    double Prx = rx * rx;
-    double Pry = ry * ry;
+    double Prx = radiusX * radiusX;
+    double Pry = radiusY * radiusY;
     double Px1 = x1 * x1;
     double Py1 = y1 * y1;
 
     // check that radii are large enough
     double radiiCheck = Px1 / Prx + Py1 / Pry;
     if (radiiCheck > 1) {
-      rx = Math.sqrt(radiiCheck) * rx;
-      ry = Math.sqrt(radiiCheck) * ry;
-      Prx = rx * rx;
-      Pry = ry * ry;
+      radiusX = Math.sqrt(radiiCheck) * radiusX;
+      radiusY = Math.sqrt(radiiCheck) * radiusY;
+      Prx = radiusX * radiusX;
+      Pry = radiusY * radiusY;
     }
 
     // Step 2 : Compute (cx1, cy1)
@@ -299,43 +299,441 @@ public class PathParser {
         / ((Prx * Py1) + (Pry * Px1));
     sq = (sq < 0) ? 0 : sq;
     double coef = (sign * Math.sqrt(sq));
-    double cx1 = coef * ((rx * y1) / ry);
-    double cy1 = coef * -((ry * x1) / rx);
+    double cx1 = coef * ((radiusX * y1) / radiusY);
+    double cy1 = coef * -((radiusY * x1) / radiusX);
 
+    // Step 3 : Compute (cx, cy) from (cx1, cy1)
     double sx2 = (x0 + x) / 2.0;
     double sy2 = (y0 + y) / 2.0;
     double cx = sx2 + (cosAngle * cx1 - sinAngle * cy1);
     double cy = sy2 + (sinAngle * cx1 + cosAngle * cy1);
 
-    // Step 4 : Compute the angleStart (angle1) and the angleExtent (dangle)
-    double ux = (x1 - cx1) / rx;
-    double uy = (y1 - cy1) / ry;
-    double vx = (-x1 - cx1) / rx;
-    double vy = (-y1 - cy1) / ry;
-    double p, n;
-
-    // Compute the angle start
-    n = Math.sqrt((ux * ux) + (uy * uy));
-    p = ux; // (1 * ux) + (0 * uy)
-    sign = (uy < 0) ? -1.0 : 1.0;
-    double angleStart = Math.toDegrees(sign * Math.acos(p / n));
-
-    // Compute the angle extent
-    n = Math.sqrt((ux * ux + uy * uy) * (vx * vx + vy * vy));
-    p = ux * vx + uy * vy;
-    sign = (ux * vy - uy * vx < 0) ? -1.0 : 1.0;
-    double angleExtent = Math.toDegrees(sign * Math.acos(p / n));
+    // Step 4 : Compute the angleStart and the angleExtent in radians
+    double ux = (x1 - cx1) / radiusX;
+    double uy = (y1 - cy1) / radiusY;
+    double vx = (-x1 - cx1) / radiusX;
+    double vy = (-y1 - cy1) / radiusY;
+    double angleStart = Math.atan2(uy, ux);
+    double angleExtent = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
     if (!sweepFlag && angleExtent > 0) {
-      angleExtent -= 360f;
+      angleExtent -= 2 * Math.PI;
     } else if (sweepFlag && angleExtent < 0) {
-      angleExtent += 360f;
+      angleExtent += 2 * Math.PI;
+    }
+
+    // Step 5 : Approximate the arc with one cubic per quarter
+    int segments = Math.max(1, (int) Math.ceil(Math.abs(angleExtent) / (Math.PI / 2) - 1e-7));
+    double delta = angleExtent / segments;
+    double t = 4 / 3.0 * Math.tan(delta / 4);
+    double startX = x0;
+    double startY = y0;
+    double eta = angleStart;
+    for (int i = 0; i < segments; i++) {
+      double cosEta1 = Math.cos(eta);
+      double sinEta1 = Math.sin(eta);
+      eta += delta;
+      double cosEta2 = Math.cos(eta);
+      double sinEta2 = Math.sin(eta);
+
+      double endX = cx + radiusX * cosAngle * cosEta2 - radiusY * sinAngle * sinEta2;
+      double endY = cy + radiusX * sinAngle * cosEta2 + radiusY * cosAngle * sinEta2;
+      if (i == segments - 1) { // prevent rounding errors at the end point
+        endX = x;
+        endY = y;
+      }
+      double derivative1X = -radiusX * cosAngle * sinEta1 - radiusY * sinAngle * cosEta1;
+      double derivative1Y = -radiusX * sinAngle * sinEta1 + radiusY * cosAngle * cosEta1;
+      double derivative2X = -radiusX * cosAngle * sinEta2 - radiusY * sinAngle * cosEta2;
+      double derivative2Y = -radiusX * sinAngle * sinEta2 + radiusY * cosAngle * cosEta2;
+      float c1x = (float) (startX + t * derivative1X);
+      float c1y = (float) (startY + t * derivative1Y);
+      float c2x = (float) (endX - t * derivative2X);
+      float c2y = (float) (endY - t * derivative2Y);
+      data.cubicTo(c1x, c1y, c2x, c2y, (float) endX, (float) endY);
+      startX = endX;
+      startY = endY;
+    }
+  }
+
+  /**
+   * Parsed path with the bounds of all its points including control points (the same as
+   * Path.computeBounds would return) and the number of each verb, all tracked while parsing.
+   * All verbs are also recorded with absolute coordinates, so the path can be stored and rebuilt
+   * without parsing it again.
+   */
+  public static class PathData {
+
+    public static final byte VERB_MOVE = 0;
+    public static final byte VERB_LINE = 1;
+    public static final byte VERB_QUAD = 2;
+    public static final byte VERB_CUBIC = 3;
+    public static final byte VERB_CLOSE = 4;
+    // circle as dot: x, y, radius
+    public static final byte VERB_DOT = 5;
+
+    public final Path path = new Path();
+    public final RectF bounds = new RectF();
+    public int moveCount, lineCount, quadCount, cubicCount, closeCount, dotCount;
+
+    private byte[] verbs = new byte[16];
+    private int verbCount;
+    private float[] coords = new float[32];
+    private int coordCount;
+
+    private float left = Float.POSITIVE_INFINITY;
+    private float top = Float.POSITIVE_INFINITY;
+    private float right = Float.NEGATIVE_INFINITY;
+    private float bottom = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Rebuilds a path from recorded verbs and coordinates, e.g. from a compiled scene
+     *
+     * @throws IllegalArgumentException if a verb is unknown or coordinates are missing
+     */
+    @NonNull
+    public static PathData fromVerbs(byte[] verbs, int verbCount, float[] coords, int coordCount) {
+      PathData data = new PathData();
+      int c = 0;
+      try {
+        for (int i = 0; i < verbCount; i++) {
+          switch (verbs[i]) {
+            case VERB_MOVE:
+              data.moveTo(coords[c++], coords[c++]);
+              break;
+            case VERB_LINE:
+              data.lineTo(coords[c++], coords[c++]);
+              break;
+            case VERB_QUAD:
+              data.quadTo(coords[c++], coords[c++], coords[c++], coords[c++]);
+              break;
+            case VERB_CUBIC:
+              data.cubicTo(
+                  coords[c++], coords[c++], coords[c++], coords[c++], coords[c++], coords[c++]
+              );
+              break;
+            case VERB_CLOSE:
+              data.close();
+              break;
+            case VERB_DOT:
+              data.addDot(coords[c++], coords[c++], coords[c++]);
+              break;
+            default:
+              throw new IllegalArgumentException("Unknown path verb " + verbs[i]);
+          }
+        }
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("Missing path coordinates", e);
+      }
+      if (c > coordCount) {
+        throw new IllegalArgumentException("Missing path coordinates");
+      }
+      return data.finish();
+    }
+
+    public int getVerbCount() {
+      return verbCount;
+    }
+
+    public byte[] getVerbs() {
+      return verbs;
+    }
+
+    public int getCoordCount() {
+      return coordCount;
+    }
+
+    public float[] getCoords() {
+      return coords;
+    }
+
+    /**
+     * Scales the path, its recorded coordinates and its bounds around the given pivot
+     */
+    public void scale(float scale, float px, float py) {
+      Matrix matrix = new Matrix();
+      matrix.setScale(scale, scale, px, py);
+      path.transform(matrix);
+
+      int c = 0;
+      for (int i = 0; i < verbCount; i++) {
+        int points;
+        switch (verbs[i]) {
+          case VERB_MOVE:
+          case VERB_LINE:
+            points = 1;
+            break;
+          case VERB_QUAD:
+            points = 2;
+            break;
+          case VERB_CUBIC:
+            points = 3;
+            break;
+          case VERB_DOT:
+            coords[c] = px + (coords[c] - px) * scale;
+            coords[c + 1] = py + (coords[c + 1] - py) * scale;
+            coords[c + 2] *= scale;
+            c += 3;
+            continue;
+          default:
+            continue;
+        }
+        for (int p = 0; p < points; p++, c += 2) {
+          coords[c] = px + (coords[c] - px) * scale;
+          coords[c + 1] = py + (coords[c + 1] - py) * scale;
+        }
+      }
+      matrix.mapRect(bounds);
+    }
+
+    /**
+     * Creates a simplified copy for drawing while the scene is in motion. Curves which don't
+     * deviate more than the tolerance from their chord become lines, and runs of lines are reduced
+     * with the Ramer-Douglas-Peucker algorithm. Dots and contours are kept.
+     *
+     * @param tolerance maximal distance of the simplified outline in path coordinates
+     * @return the simplified path data, which can have the same number of verbs
+     */
+    @NonNull
+    public PathData simplify(float tolerance) {
+      PathData data = new PathData();
+      // Points of the current run of lines, starting with the current point
+      float[] run = new float[32];
+      int runCount = 0;
+      float startX = 0, startY = 0;
+      float lastX = 0, lastY = 0;
+      int c = 0;
+      for (int i = 0; i < verbCount; i++) {
+        switch (verbs[i]) {
+          case VERB_MOVE:
+            data.lineRun(run, runCount, tolerance);
+            lastX = startX = coords[c++];
+            lastY = startY = coords[c++];
+            data.moveTo(lastX, lastY);
+            runCount = 0;
+            break;
+          case VERB_LINE:
+          case VERB_QUAD:
+          case VERB_CUBIC: {
+            int points = verbs[i] == VERB_LINE ? 1 : (verbs[i] == VERB_QUAD ? 2 : 3);
+            float x = coords[c + points * 2 - 2];
+            float y = coords[c + points * 2 - 1];
+            boolean isFlat = true;
+            for (int p = 0; p < points - 1 && isFlat; p++) {
+              isFlat = getSegmentDistance(
+                  coords[c + p * 2], coords[c + p * 2 + 1], lastX, lastY, x, y
+              ) <= tolerance;
+            }
+            if (isFlat) {
+              if (runCount == 0) {
+                run[runCount++] = lastX;
+                run[runCount++] = lastY;
+              }
+              if (runCount + 2 > run.length) {
+                run = Arrays.copyOf(run, run.length * 2);
+              }
+              run[runCount++] = x;
+              run[runCount++] = y;
+            } else {
+              data.lineRun(run, runCount, tolerance);
+              runCount = 0;
+              if (points == 2) {
+                data.quadTo(coords[c], coords[c + 1], x, y);
+              } else {
+                data.cubicTo(coords[c], coords[c + 1], coords[c + 2], coords[c + 3], x, y);
+              }
+            }
+            c += points * 2;
+            lastX = x;
+            lastY = y;
+            break;
+          }
+          case VERB_CLOSE:
+            data.lineRun(run, runCount, tolerance);
+            runCount = 0;
+            data.close();
+            lastX = startX;
+            lastY = startY;
+            break;
+          case VERB_DOT:
+            data.lineRun(run, runCount, tolerance);
+            runCount = 0;
+            data.addDot(coords[c], coords[c + 1], coords[c + 2]);
+            c += 3;
+            break;
+        }
+      }
+      data.lineRun(run, runCount, tolerance);
+      return data.finish();
+    }
+
+    /**
+     * Adds lines to all points of the run which are needed to stay within the tolerance, the first
+     * point is the current point and not added
+     */
+    private void lineRun(float[] run, int runCount, float tolerance) {
+      int points = runCount / 2;
+      if (points < 2) {
+        return;
+      }
+      boolean[] keep = new boolean[points];
+      keep[0] = true;
+      keep[points - 1] = true;
+      // Ramer-Douglas-Peucker with a stack of ranges instead of recursion
+      int[] stack = new int[points * 2];
+      int stackSize = 0;
+      stack[stackSize++] = 0;
+      stack[stackSize++] = points - 1;
+      while (stackSize > 0) {
+        int last = stack[--stackSize];
+        int first = stack[--stackSize];
+        float maxDistance = 0;
+        int index = -1;
+        for (int p = first + 1; p < last; p++) {
+          float distance = getSegmentDistance(
+              run[p * 2], run[p * 2 + 1],
+              run[first * 2], run[first * 2 + 1], run[last * 2], run[last * 2 + 1]
+          );
+          if (distance > maxDistance) {
+            maxDistance = distance;
+            index = p;
+          }
+        }
+        if (index != -1 && maxDistance > tolerance) {
+          keep[index] = true;
+          stack[stackSize++] = first;
+          stack[stackSize++] = index;
+          stack[stackSize++] = index;
+          stack[stackSize++] = last;
+        }
+      }
+      for (int p = 1; p < points; p++) {
+        if (keep[p]) {
+          lineTo(run[p * 2], run[p * 2 + 1]);
+        }
+      }
+    }
+
+    /**
+     * @return distance of the point to the line segment from a to b
+     */
+    private static float getSegmentDistance(
+        float x, float y, float ax, float ay, float bx, float by
+    ) {
+      float dx = bx - ax;
+      float dy = by - ay;
+      float lengthSquared = dx * dx + dy * dy;
+      float t = lengthSquared > 0 ? ((x - ax) * dx + (y - ay) * dy) / lengthSquared : 0;
+      t = Math.max(0, Math.min(t, 1));
+      return (float) Math.hypot(x - (ax + t * dx), y - (ay + t * dy));
+    }
+
+    void moveTo(float x, float y) {
+      path.moveTo(x, y);
+      include(x, y);
+      record(VERB_MOVE, 2);
+      coords[coordCount++] = x;
+      coords[coordCount++] = y;
+      moveCount++;
+    }
+
+    void lineTo(float x, float y) {
+      path.lineTo(x, y);
+      include(x, y);
+      record(VERB_LINE, 2);
+      coords[coordCount++] = x;
+      coords[coordCount++] = y;
+      lineCount++;
     }
-    angleExtent %= 360f;
-    angleStart %= 360f;
 
-    RectF oval = new RectF((float) (cx - rx), (float) (cy - ry), (float) (cx + rx),
-        (float) (cy + ry));
-    path.addArc(oval, (float) angleStart, (float) angleExtent);
+    void quadTo(float x1, float y1, float x, float y) {
+      path.quadTo(x1, y1, x, y);
+      include(x1, y1);
+      include(x, y);
+      record(VERB_QUAD, 4);
+      coords[coordCount++] = x1;
+      coords[coordCount++] = y1;
+      coords[coordCount++] = x;
+      coords[coordCount++] = y;
+      quadCount++;
+    }
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+      path.cubicTo(x1, y1, x2, y2, x, y);
+      include(x1, y1);
+      include(x2, y2);
+      include(x, y);
+      record(VERB_CUBIC, 6);
+      coords[coordCount++] = x1;
+      coords[coordCount++] = y1;
+      coords[coordCount++] = x2;
+      coords[coordCount++] = y2;
+      coords[coordCount++] = x;
+      coords[coordCount++] = y;
+      cubicCount++;
+    }
+
+    void close() {
+      path.close();
+      record(VERB_CLOSE, 0);
+      closeCount++;
+    }
+
+    /**
+     * Zero-length line after a move, drawn as a small circle
+     */
+    void addDot(float x, float y, float radius) {
+      path.addCircle(x, y, radius, Path.Direction.CW);
+      include(x - radius, y - radius);
+      include(x + radius, y + radius);
+      record(VERB_DOT, 3);
+      coords[coordCount++] = x;
+      coords[coordCount++] = y;
+      coords[coordCount++] = radius;
+      dotCount++;
+    }
+
+    /**
+     * Adds the verb and makes sure there's space for the given number of coordinates
+     */
+    private void record(byte verb, int coordsNeeded) {
+      if (verbCount == verbs.length) {
+        verbs = Arrays.copyOf(verbs, verbCount * 2);
+      }
+      verbs[verbCount++] = verb;
+      if (coordCount + coordsNeeded > coords.length) {
+        coords = Arrays.copyOf(coords, coords.length * 2);
+      }
+    }
+
+    private void include(float x, float y) {
+      if (x < left) {
+        left = x;
+      }
+      if (x > right) {
+        right = x;
+      }
+      if (y < top) {
+        top = y;
+      }
+      if (y > bottom) {
+        bottom = y;
+      }
+    }
+
+    PathData finish() {
+      if (left <= right) {
+        bounds.set(left, top, right, bottom);
+      }
+      return this;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      return "PathData{" + bounds + ", moves=" + moveCount + ", lines=" + lineCount
+          + ", quads=" + quadCount + ", cubics=" + cubicCount + ", closes=" + closeCount
+          + ", dots=" + dotCount + '}';
+    }
   }
 
   /**
@@ -399,6 +797,7 @@ public class PathParser {
     }
 
     //Parses the content of the buffer and converts it to a float.
+    //Throws an IllegalArgumentException if it doesn't start with a number.
     float parseFloat() {
       int mant = 0;
       int mantDig = 0;
@@ -420,7 +819,8 @@ public class PathParser {
       m1:
       switch (current) {
         default:
-          return Float.NaN;
+          // A number was expected, e.g. a command is missing its coordinates
+          throw new IllegalArgumentException("Unexpected char '" + current + "' at " + pos);
 
         case '.':
           break;
@@ -670,7 +1070,7 @@ public class PathParser {
     }
 
     private void reportUnexpectedCharacterError(char c) {
-      throw new RuntimeException("Unexpected char '" + c + "'.");
+      throw new IllegalArgumentException("Unexpected char '" + c + "' at " + pos);
     }
 
     //Computes a float from mantissa and exponent.
@@ -707,6 +1107,21 @@ public class PathParser {
       }
     }
 
+    /**
+     * Arc flags are single digits and may not be separated from the next number (e.g. "011 1")
+     */
+    public boolean nextFlag() {
+      skipWhitespace();
+      boolean flag = current == '1';
+      if (current == '0' || current == '1') {
+        advance();
+      } else {
+        reportUnexpectedCharacterError(current);
+      }
+      skipNumberSeparator();
+      return flag;
+    }
+
     public float nextFloat() {
       skipWhitespace();
       float f = parseFloat();
@@ -0,0 +1,477 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.parser;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.content.res.Resources.NotFoundException;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RawRes;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal pull scanner for the SVG subset of the wallpapers, which works directly on the bytes of
+ * a (memory-mapped) buffer. Attribute values are not copied, they are returned as slices of the
+ * buffer. Comments, processing instructions, DOCTYPE, CDATA and text content are skipped.
+ * Attribute values are not unescaped, except with getAttributeString(). Names are compared with
+ * their prefix, e.g. "xlink:href".
+ */
+public class SvgScanner {
+
+  private static final String TAG = SvgScanner.class.getSimpleName();
+
+  // Same values as in XmlPullParser
+  public static final int END_DOCUMENT = 1;
+  public static final int START_TAG = 2;
+  public static final int END_TAG = 3;
+
+  private final ByteBuffer buffer;
+  private final int limit;
+  private int pos;
+  private int eventType;
+  private int depth;
+  private boolean isEmptyElementTag;
+  private int nameStart, nameEnd;
+  // start and end offsets of the name and the value of each attribute of the current start tag
+  private int[] attributes = new int[4 * 16];
+  private int attributeCount;
+
+  public SvgScanner(@NonNull ByteBuffer buffer) {
+    this.buffer = buffer;
+    limit = buffer.limit();
+    pos = buffer.position();
+    if (limit - pos >= 3
+        && buffer.get(pos) == (byte) 0xEF
+        && buffer.get(pos + 1) == (byte) 0xBB
+        && buffer.get(pos + 2) == (byte) 0xBF) {
+      pos += 3; // UTF-8 BOM
+    }
+  }
+
+  /**
+   * Maps the raw resource into memory if it is stored uncompressed in the APK, else it is read into
+   * a heap buffer. The SVGs are compressed, as they are only parsed if no compiled scene exists.
+   */
+  @NonNull
+  public static ByteBuffer map(@NonNull Resources resources, @RawRes int resId)
+      throws IOException {
+    AssetFileDescriptor descriptor;
+    try {
+      descriptor = resources.openRawResourceFd(resId);
+    } catch (NotFoundException e) {
+      descriptor = null;
+    }
+    if (descriptor != null) {
+      // The stream owns the descriptor, which is closed with it
+      try (FileInputStream input = descriptor.createInputStream()) {
+        // The mapping stays valid after the channel is closed
+        return input.getChannel().map(
+            FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength()
+        );
+      }
+    }
+    Log.w(TAG, "map: resource is compressed, reading it into memory...");
+    try (InputStream input = resources.openRawResource(resId)) {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      byte[] chunk = new byte[8192];
+      int length;
+      while ((length = input.read(chunk)) != -1) {
+        output.write(chunk, 0, length);
+      }
+      return ByteBuffer.wrap(output.toByteArray());
+    }
+  }
+
+  /**
+   * Moves to the next start or end tag. Empty element tags like <path/> result in a start and an
+   * end tag.
+   *
+   * @throws IOException if the document is malformed
+   */
+  public int next() throws IOException {
+    attributeCount = 0;
+    if (isEmptyElementTag) {
+      isEmptyElementTag = false;
+      depth--;
+      return eventType = END_TAG;
+    }
+    while (true) {
+      int start = indexOf('<', pos);
+      if (start == -1) {
+        pos = limit;
+        if (depth > 0) {
+          throw new IOException("Unexpected end of document");
+        }
+        return eventType = END_DOCUMENT;
+      }
+      pos = start + 1;
+      if (startsWith("?", pos)) {
+        pos = skipPast("?>", pos);
+      } else if (startsWith("!--", pos)) {
+        pos = skipPast("-->", pos + 3);
+      } else if (startsWith("![CDATA[", pos)) {
+        pos = skipPast("]]>", pos + 8);
+      } else if (startsWith("!", pos)) {
+        pos = skipDeclaration(pos);
+      } else if (startsWith("/", pos)) {
+        nameStart = pos + 1;
+        nameEnd = readName(nameStart);
+        pos = skipPast(">", nameEnd);
+        depth--;
+        return eventType = END_TAG;
+      } else {
+        nameStart = pos;
+        nameEnd = readName(nameStart);
+        readAttributes(nameEnd);
+        depth++;
+        return eventType = START_TAG;
+      }
+    }
+  }
+
+  public int getEventType() {
+    return eventType;
+  }
+
+  /**
+   * @return the buffer offset of the current tag, which identifies it in the document
+   */
+  public int getTagOffset() {
+    return nameStart;
+  }
+
+  public boolean isName(@NonNull String name) {
+    return equals(name, nameStart, nameEnd);
+  }
+
+  @NonNull
+  public String getName() {
+    return decode(nameStart, nameEnd);
+  }
+
+  /**
+   * @throws IOException if the current event is not the expected tag
+   */
+  public void require(int type, @NonNull String name) throws IOException {
+    if (eventType != type || !isName(name)) {
+      throw new IOException("Expected " + (type == START_TAG ? "<" : "</") + name + "> at " + pos);
+    }
+  }
+
+  /**
+   * Skips the current start tag with all of its children
+   */
+  public void skip() throws IOException {
+    if (eventType != START_TAG) {
+      throw new IllegalStateException("Current event is not a start tag");
+    }
+    int depth = 1;
+    while (depth != 0) {
+      switch (next()) {
+        case END_TAG:
+          depth--;
+          break;
+        case START_TAG:
+          depth++;
+          break;
+        case END_DOCUMENT:
+          throw new IOException("Unexpected end of document");
+      }
+    }
+  }
+
+  /**
+   * @return the raw value as slice of the buffer or null if the attribute is missing
+   */
+  @Nullable
+  public CharSequence getAttributeValue(@NonNull String name) {
+    int index = indexOfAttribute(name);
+    if (index == -1) {
+      return null;
+    }
+    return new Slice(buffer, attributes[index + 2], attributes[index + 3]);
+  }
+
+  /**
+   * @return the raw value bytes as slice of the buffer or null if the attribute is missing
+   */
+  @Nullable
+  public ByteBuffer getAttributeBuffer(@NonNull String name) {
+    int index = indexOfAttribute(name);
+    if (index == -1) {
+      return null;
+    }
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(attributes[index + 3]);
+    slice.position(attributes[index + 2]);
+    return slice.slice();
+  }
+
+  /**
+   * @return the decoded and unescaped value or null if the attribute is missing
+   */
+  @Nullable
+  public String getAttributeString(@NonNull String name) {
+    int index = indexOfAttribute(name);
+    if (index == -1) {
+      return null;
+    }
+    String value = decode(attributes[index + 2], attributes[index + 3]);
+    if (value.indexOf('&') == -1) {
+      return value;
+    }
+    return value.replace("&lt;", "<")
+        .replace("&gt;", ">")
+        .replace("&quot;", "\"")
+        .replace("&apos;", "'")
+        .replace("&amp;", "&");
+  }
+
+  /**
+   * @return the parsed value or the default value if the attribute is missing, empty or invalid
+   */
+  public float getAttributeFloat(@NonNull String name, float defaultValue) {
+    int index = indexOfAttribute(name);
+    if (index == -1 || attributes[index + 2] == attributes[index + 3]) {
+      return defaultValue;
+    }
+    Slice value = new Slice(buffer, attributes[index + 2], attributes[index + 3]);
+    PathParser.ParserHelper helper = new PathParser.ParserHelper(value);
+    try {
+      helper.skipWhitespace();
+      float result = helper.parseFloat();
+      helper.skipWhitespace();
+      if (helper.pos < value.length()) {
+        return 0; // like a NumberFormatException
+      }
+      return result;
+    } catch (IllegalArgumentException e) {
+      return 0;
+    }
+  }
+
+  private int indexOfAttribute(String name) {
+    for (int i = 0; i < attributeCount * 4; i += 4) {
+      if (equals(name, attributes[i], attributes[i + 1])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private void readAttributes(int pos) throws IOException {
+    while (true) {
+      pos = skipWhitespace(pos);
+      if (pos >= limit) {
+        throw new IOException("Unexpected end of document in tag");
+      }
+      byte b = buffer.get(pos);
+      if (b == '>') {
+        this.pos = pos + 1;
+        return;
+      } else if (b == '/') {
+        if (!startsWith("/>", pos)) {
+          throw new IOException("Unexpected '/' at " + pos);
+        }
+        isEmptyElementTag = true;
+        this.pos = pos + 2;
+        return;
+      }
+      int attrNameStart = pos;
+      int attrNameEnd = readName(pos);
+      pos = skipWhitespace(attrNameEnd);
+      if (pos >= limit || buffer.get(pos) != '=') {
+        throw new IOException("Expected '=' at " + pos);
+      }
+      pos = skipWhitespace(pos + 1);
+      if (pos >= limit) {
+        throw new IOException("Unexpected end of document in tag");
+      }
+      byte quote = buffer.get(pos);
+      if (quote != '"' && quote != '\'') {
+        throw new IOException("Expected quote at " + pos);
+      }
+      int valueStart = pos + 1;
+      int valueEnd = indexOf(quote, valueStart);
+      if (valueEnd == -1) {
+        throw new IOException("Unterminated attribute value at " + valueStart);
+      }
+      if (attributeCount * 4 == attributes.length) {
+        attributes = Arrays.copyOf(attributes, attributes.length * 2);
+      }
+      int index = attributeCount * 4;
+      attributes[index] = attrNameStart;
+      attributes[index + 1] = attrNameEnd;
+      attributes[index + 2] = valueStart;
+      attributes[index + 3] = valueEnd;
+      attributeCount++;
+      pos = valueEnd + 1;
+    }
+  }
+
+  private int readName(int pos) throws IOException {
+    int start = pos;
+    while (pos < limit) {
+      byte b = buffer.get(pos);
+      if (isWhitespace(b) || b == '=' || b == '>' || b == '/') {
+        break;
+      }
+      pos++;
+    }
+    if (pos == start) {
+      throw new IOException("Expected name at " + start);
+    }
+    return pos;
+  }
+
+  /**
+   * Skips a declaration like DOCTYPE, which can contain an internal subset in brackets
+   */
+  private int skipDeclaration(int pos) throws IOException {
+    int brackets = 0;
+    while (pos < limit) {
+      byte b = buffer.get(pos++);
+      if (b == '[') {
+        brackets++;
+      } else if (b == ']') {
+        brackets--;
+      } else if (b == '>' && brackets <= 0) {
+        return pos;
+      }
+    }
+    throw new IOException("Unterminated declaration");
+  }
+
+  private int skipPast(String end, int pos) throws IOException {
+    byte first = (byte) end.charAt(0);
+    while (true) {
+      pos = indexOf(first, pos);
+      if (pos == -1) {
+        throw new IOException("Expected '" + end + "'");
+      } else if (startsWith(end, pos)) {
+        return pos + end.length();
+      }
+      pos++;
+    }
+  }
+
+  private int skipWhitespace(int pos) {
+    while (pos < limit && isWhitespace(buffer.get(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private int indexOf(int b, int pos) {
+    for (int i = pos; i < limit; i++) {
+      if (buffer.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean startsWith(String prefix, int pos) {
+    if (limit - pos < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (buffer.get(pos + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean equals(String name, int start, int end) {
+    if (end - start != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (buffer.get(start + i) != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  /**
+   * Characters of a buffer region without copying, only for ASCII content like numbers and path
+   * data
+   */
+  private static class Slice implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int start, end;
+
+    Slice(ByteBuffer buffer, int start, int end) {
+      this.buffer = buffer;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new Slice(buffer, this.start + start, this.start + end);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = buffer.get(start + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
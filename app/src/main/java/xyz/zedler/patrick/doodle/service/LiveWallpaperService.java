@@ -21,6 +21,7 @@ package xyz.zedler.patrick.doodle.service;
 
 import android.animation.TimeInterpolator;
 import android.animation.ValueAnimator;
+import android.app.ActivityManager;
 import android.app.KeyguardManager;
 import android.app.WallpaperColors;
 import android.app.WallpaperManager;
@@ -32,26 +33,32 @@ import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.hardware.Sensor;
-import android.hardware.SensorEvent;
-import android.hardware.SensorEventListener;
+import android.graphics.Rect;
 import android.hardware.SensorManager;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.PowerManager;
+import android.os.Process;
 import android.os.SystemClock;
 import android.service.wallpaper.WallpaperService;
 import android.util.Log;
-import android.util.Pair;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 import android.view.Surface;
 import android.view.SurfaceHolder;
 import android.view.View;
 import android.view.WindowManager;
 import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import xyz.zedler.patrick.doodle.Constants;
 import xyz.zedler.patrick.doodle.Constants.ACTION;
 import xyz.zedler.patrick.doodle.Constants.DEF;
@@ -60,7 +67,11 @@ import xyz.zedler.patrick.doodle.Constants.PREF;
 import xyz.zedler.patrick.doodle.Constants.REQUEST_SOURCE;
 import xyz.zedler.patrick.doodle.Constants.USER_PRESENCE;
 import xyz.zedler.patrick.doodle.R;
+import xyz.zedler.patrick.doodle.drawable.BitmapPool;
+import xyz.zedler.patrick.doodle.drawable.SvgCache;
 import xyz.zedler.patrick.doodle.drawable.SvgDrawable;
+import xyz.zedler.patrick.doodle.drawable.SvgDrawable.ImageListener;
+import xyz.zedler.patrick.doodle.drawable.SvgDrawable.SvgImage;
 import xyz.zedler.patrick.doodle.util.PrefsUtil;
 import xyz.zedler.patrick.doodle.util.SensorUtil;
 import xyz.zedler.patrick.doodle.wallpaper.BaseWallpaper;
@@ -69,6 +80,19 @@ import xyz.zedler.patrick.doodle.wallpaper.BaseWallpaper.WallpaperVariant;
 public class LiveWallpaperService extends WallpaperService {
 
   private static final String TAG = LiveWallpaperService.class.getSimpleName();
+  private static final boolean DEBUG = false;
+
+  // Time without swipe, tilt or zoom until the wallpaper is drawn in full detail again
+  private static final long MOTION_END_DELAY = 250;
+  // Frame rate limit while battery saver is enabled
+  private static final float POWER_SAVE_FRAME_RATE = 30;
+  // Number of tilt sensor events which are compared to detect movement
+  private static final int TILT_HISTORY_SIZE = 30;
+  // Time after screen-on until the next random wallpaper is prefetched
+  private static final long PREFETCH_DELAY = 5000;
+  // Larger scenes are not prefetched, their images would stay in memory until the next screen-off
+  private static final long REDRAW_TIMEOUT = 500;
+  private static final long PREFETCH_MAX_BYTES = Runtime.getRuntime().maxMemory() / 8;
 
   // All things where we need a context or the service's context are done in this Service class
   // All other things should be done in the inner Engine class
@@ -77,12 +101,8 @@ public class LiveWallpaperService extends WallpaperService {
   private static UserAwareEngine nonPreviewEngineInstance = null;
 
   private SharedPreferences sharedPrefs;
-  private SvgDrawable svgDrawable;
-  private BaseWallpaper wallpaper;
-  private WallpaperVariant variant;
-  private int variantIndex;
   private int nightMode;
-  private boolean isPowerSaveMode;
+  private volatile boolean isPowerSaveMode;
   private BroadcastReceiver receiver;
   private String presence;
   private boolean isReceiverRegistered = false;
@@ -90,6 +110,10 @@ public class LiveWallpaperService extends WallpaperService {
   private RefreshListener refreshListener;
   private SensorManager sensorManager;
   private PowerManager powerManager;
+  private ExecutorService loadExecutor;
+  private ExecutorService prefetchExecutor;
+  private volatile int prefetchThreadId;
+  private Handler mainHandler;
 
   @Override
   public void onCreate() {
@@ -99,6 +123,15 @@ public class LiveWallpaperService extends WallpaperService {
 
     sharedPrefs = new PrefsUtil(this).checkForMigrations().getSharedPrefs();
 
+    // Wallpapers are loaded in the background, so the engines can still draw and respond
+    loadExecutor = Executors.newSingleThreadExecutor();
+    // Random wallpapers are prefetched with low priority to not disturb the current one
+    prefetchExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+      prefetchThreadId = Process.myTid();
+      runnable.run();
+    }, "WallpaperPrefetch"));
+    mainHandler = new Handler(Looper.getMainLooper());
+
     receiver = new BroadcastReceiver() {
       public void onReceive(Context context, Intent intent) {
         switch (intent.getAction()) {
@@ -113,6 +146,9 @@ public class LiveWallpaperService extends WallpaperService {
             break;
           case PowerManager.ACTION_POWER_SAVE_MODE_CHANGED:
             isPowerSaveMode = powerManager.isPowerSaveMode();
+            if (refreshListener != null) {
+              refreshListener.onRefreshFrameRate();
+            }
             break;
           case ACTION.THEME_CHANGED:
             if (refreshListener != null) {
@@ -136,6 +172,20 @@ public class LiveWallpaperService extends WallpaperService {
 
     serviceInstance = null;
     unregisterReceiver();
+    loadExecutor.shutdownNow();
+    prefetchExecutor.shutdownNow();
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    super.onTrimMemory(level);
+
+    if (level >= TRIM_MEMORY_RUNNING_LOW && nonPreviewEngineInstance != null) {
+      nonPreviewEngineInstance.releasePrefetchedWallpaper();
+    }
+    if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      BitmapPool.clear();
+    }
   }
 
   @Override
@@ -193,39 +243,6 @@ public class LiveWallpaperService extends WallpaperService {
     }
   }
 
-  private void loadWallpaper() {
-    variantIndex = sharedPrefs.getInt(
-        Constants.VARIANT_PREFIX + wallpaper.getName(), 0
-    );
-    // This method is more efficient
-    if (variantIndex >= wallpaper.getVariants().length
-        || variantIndex >= wallpaper.getDarkVariants().length) {
-      variantIndex = 0;
-    }
-
-    if (isNightMode()) {
-      variant = wallpaper.getDarkVariants()[variantIndex];
-      svgDrawable = wallpaper.getPreparedSvg(
-          new SvgDrawable(this, variant.getSvgResId()), variantIndex, true
-      );
-    } else {
-      variant = wallpaper.getVariants()[variantIndex];
-      svgDrawable = wallpaper.getPreparedSvg(
-          new SvgDrawable(this, variant.getSvgResId()), variantIndex, false
-      );
-    }
-
-    if (svgDrawable == null) {
-      // Prevent NullPointerExceptions
-      svgDrawable = wallpaper.getPreparedSvg(
-          new SvgDrawable(this, R.raw.wallpaper_pixel1), 1, false
-      );
-    }
-    if (wallpaper.isDepthStatic()) {
-      svgDrawable.applyRelativeElevationToAll(0.2f);
-    }
-  }
-
   private boolean isNightMode() {
     if (nightMode == NIGHT_MODE.ON) {
       return true;
@@ -248,7 +265,7 @@ public class LiveWallpaperService extends WallpaperService {
     }
   }
 
-  private float getFrameRate() {
+  private float getDisplayRefreshRate() {
     WindowManager windowManager = ((WindowManager) getSystemService(Context.WINDOW_SERVICE));
     return windowManager != null ? windowManager.getDefaultDisplay().getRefreshRate() : 60;
   }
@@ -262,6 +279,27 @@ public class LiveWallpaperService extends WallpaperService {
 
     void onRefreshTheme();
     void onRefreshSettings();
+    void onRefreshFrameRate();
+  }
+
+  private static class PrefetchedWallpaper {
+
+    final BaseWallpaper wallpaper;
+    final WallpaperVariant variant;
+    final int variantIndex;
+    final boolean isNightMode;
+    final SvgDrawable drawable;
+
+    PrefetchedWallpaper(
+        BaseWallpaper wallpaper, WallpaperVariant variant, int variantIndex,
+        boolean isNightMode, SvgDrawable drawable
+    ) {
+      this.wallpaper = wallpaper;
+      this.variant = variant;
+      this.variantIndex = variantIndex;
+      this.isNightMode = isNightMode;
+      this.drawable = drawable;
+    }
   }
 
   // ENGINE ------------------------------------------------------------
@@ -269,6 +307,23 @@ public class LiveWallpaperService extends WallpaperService {
   class UserAwareEngine extends Engine implements UserPresenceListener, RefreshListener {
 
     private Context context;
+    private SvgDrawable svgDrawable;
+    // Drawable shown before the current load started, released when the new one is ready
+    private SvgDrawable svgDrawableRetired;
+    private Future<?> loadFuture;
+    private int loadGeneration;
+    private PrefetchedWallpaper prefetchedWallpaper;
+    private Future<?> prefetchFuture;
+    private int prefetchGeneration;
+    private boolean isPrefetchScheduled;
+    private final Runnable prefetchRunnable = () -> {
+      isPrefetchScheduled = false;
+      prefetchRandomWallpaper();
+    };
+    private boolean isDestroyed;
+    private BaseWallpaper wallpaper;
+    private WallpaperVariant variant;
+    private int variantIndex;
     private boolean useWhiteText;
     private int zoomIntensity;
     private boolean isZoomLauncherEnabled, isZoomUnlockEnabled;
@@ -276,33 +331,63 @@ public class LiveWallpaperService extends WallpaperService {
     private float zoomUnlock;
     private boolean useSystemZoom;
     private float scale;
+    private int depthLayerCount;
+    // Region of the software canvas which is redrawn, see SvgDrawable.getDirtyRegion()
+    private final Rect dirtyRegion = new Rect();
+    // Uptime of the last swipe, tilt or zoom, paths are simplified until MOTION_END_DELAY passed
+    private volatile long lastMotionTime;
+    // Frames are drawn on this thread once per vsync, callbacks only request them with drawFrame()
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+    // Held while a frame is drawn, the drawable and the surface must not change meanwhile
+    private final Object renderLock = new Object();
+    // Guards the state below, which is applied to the drawable with the next frame
+    private final Object frameStateLock = new Object();
+    private boolean isFrameRequested;
+    // Requests which were merged into an already scheduled frame
+    private int requestedFrameCount, coalescedFrameCount;
+    private float frameOffsetX, frameZoom;
+    private int frameTiltFactor, frameScreenRotation;
+    private int framePlaceholderColor;
+    private final FrameCallback frameCallback = this::onVsync;
+    // Shortest time between two frames to respect the frame rate limit, 0 for every vsync
+    private volatile long minFrameIntervalNanos;
+    private long lastFrameTimeNanos;
+    private int frameRateLimit;
+    // The choreographer is bound to the looper of the calling thread
+    private final Runnable scheduleFrameRunnable
+        = () -> Choreographer.getInstance().postFrameCallback(frameCallback);
+    // Draws the wallpaper in full detail again after the motion ended
+    private final Runnable motionEndRunnable = () -> requestFrame(false);
+    // Draws images which were skipped in the last frame because they were not decoded yet
+    private final ImageListener imageListener = () -> requestFrame(false);
+    // Sensor events are filtered on this thread, only the final tilt is handed to the render thread
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
     private int parallax;
     private int zoomRotation;
     private int zoomDuration;
-    private int dampingTilt, dampingZoom;
+    private volatile int dampingTilt;
+    private int dampingZoom;
     private boolean useZoomDamping;
-    private boolean hasAccelerometer;
-    private boolean isTiltEnabled;
-    private float tiltX, tiltY;
+    private volatile boolean isTiltEnabled;
     private int screenRotation;
-    private int tiltThreshold;
-    private float[] accelerationValues;
+    private volatile int tiltThreshold;
+    // Written in onOffsetsChanged() and read in updateOffset(), both on the main thread
     private float offsetX;
-    private long lastDrawZoomLauncher, lastDrawZoomUnlock, lastDrawTilt;
-    private boolean isVisible;
+    private volatile boolean isVisible;
     private boolean isNight;
     private boolean useGpu;
     private boolean useRandom;
-    private boolean isListenerRegistered = false;
-    private boolean isSurfaceAvailable = false;
+    private volatile boolean isSurfaceAvailable = false;
     private boolean iconDropConsumed = true;
     private boolean isRtl = false;
-    private boolean powerSaveSwipe, powerSaveTilt, powerSaveZoom;
-    private float fps;
+    private boolean powerSaveSwipe, powerSaveZoom;
+    private volatile boolean powerSaveTilt;
     private final TimeInterpolator zoomInterpolator = new FastOutSlowInInterpolator();
     private ValueAnimator zoomAnimator;
-    private SensorEventListener sensorListener;
-    private final List<Pair<Float, Float>> tiltHistory = new ArrayList<>();
+    private TiltSensorController tiltController;
+    private final TiltFilter tiltFilter = new TiltFilter(TILT_HISTORY_SIZE);
 
     @Override
     public void onCreate(SurfaceHolder surfaceHolder) {
@@ -314,56 +399,36 @@ public class LiveWallpaperService extends WallpaperService {
         nonPreviewEngineInstance = this;
       }
 
-      fps = getFrameRate();
-
       userPresenceListener = this;
       refreshListener = this;
 
-      sensorListener = new SensorEventListener() {
-        @Override
-        public void onSensorChanged(SensorEvent event) {
-          if (isVisible && isTiltEnabled && animTilt()) {
-            accelerationValues = lowPassAcceleration(event.values, accelerationValues);
-            tiltX = accelerationValues[0];
-            tiltY = -accelerationValues[1];
-
-            tiltHistory.add(new Pair<>(tiltX, tiltY));
-            while (tiltHistory.size() > 30) {
-              tiltHistory.remove(0);
-            }
-
-            float sumX = 0, sumY = 0;
-            for (Pair<Float, Float> tilt : tiltHistory) {
-              sumX += tilt.first;
-              sumY += tilt.second;
-            }
-            float averageX = sumX / tiltHistory.size();
-            float averageY = sumY / tiltHistory.size();
-            float tolerance = tiltThreshold / 100f; // Allow small deviations caused by the sensor
-            for (Pair<Float, Float> tilt : tiltHistory) {
-              boolean isMovingX = averageX >= 0
-                  ? tilt.first > averageX + tolerance
-                  : tilt.first < averageX - tolerance;
-              boolean isMovingY = averageY >= 0
-                  ? tilt.second > averageY + tolerance
-                  : tilt.second < averageY - tolerance;
-              if (isMovingX || isMovingY) {
-                updateOffset(false, REQUEST_SOURCE.TILT);
-                return;
+      renderThread = new HandlerThread("WallpaperRender", Process.THREAD_PRIORITY_DISPLAY);
+      renderThread.start();
+      renderHandler = new Handler(renderThread.getLooper());
+
+      if (SensorUtil.hasAccelerometer(context)) {
+        sensorThread = new HandlerThread("TiltSensor", Process.THREAD_PRIORITY_DISPLAY);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+        tiltController = new TiltSensorController(
+            sensorManager, SensorUtil.getAccelerometer(context), sensorHandler, values -> {
+              // Called on the sensor thread
+              if (!isVisible || !isTiltEnabled || !animTilt()) {
+                return false;
+              }
+              // Allow small deviations caused by the sensor
+              if (tiltFilter.filter(values, dampingTilt / 100f, tiltThreshold / 100f)) {
+                requestFrame(true);
+                return true;
               }
+              return false;
             }
-          }
-        }
-
-        @Override
-        public void onAccuracyChanged(Sensor sensor, int accuracy) {
-        }
-      };
+        );
+      }
 
       // Load this only once on creation, else it would cause a crash caused by OpenGL
       useGpu = sharedPrefs.getBoolean(PREF.GPU, DEF.GPU);
-
-      hasAccelerometer = SensorUtil.hasAccelerometer(context);
+      SvgImage.setUseHardwareBitmaps(useGpu);
 
       loadSettings();
       loadTheme(useRandom);
@@ -389,20 +454,45 @@ public class LiveWallpaperService extends WallpaperService {
         zoomAnimator.removeAllUpdateListeners();
         zoomAnimator = null;
       }
-      if (sensorManager != null && isListenerRegistered) {
-        sensorManager.unregisterListener(sensorListener);
-        isListenerRegistered = false;
+      if (tiltController != null) {
+        reportTiltSensor();
+        tiltController.stop();
+        sensorThread.quitSafely();
+      }
+      isDestroyed = true;
+      mainHandler.removeCallbacks(prefetchRunnable);
+      renderHandler.removeCallbacks(motionEndRunnable);
+      renderHandler.removeCallbacks(scheduleFrameRunnable);
+      renderThread.quitSafely();
+      if (loadFuture != null) {
+        loadFuture.cancel(false);
+        loadFuture = null;
       }
+      SvgDrawable drawable = svgDrawable;
+      synchronized (renderLock) {
+        svgDrawable = null;
+      }
+      // Released outside of the render lock, the render thread must not wait for the cache
+      SvgCache.release(drawable);
+      SvgCache.release(svgDrawableRetired);
+      svgDrawableRetired = null;
+      releasePrefetchedWallpaper();
     }
 
     @Override
     public void onSurfaceCreated(SurfaceHolder holder) {
-      isSurfaceAvailable = true;
+      synchronized (renderLock) {
+        isSurfaceAvailable = true;
+      }
+      applyFrameRate();
     }
 
     @Override
     public void onSurfaceDestroyed(SurfaceHolder holder) {
-      isSurfaceAvailable = false;
+      // Waits for a frame in progress, the surface must not be used after this returns
+      synchronized (renderLock) {
+        isSurfaceAvailable = false;
+      }
     }
 
     @Override
@@ -411,12 +501,16 @@ public class LiveWallpaperService extends WallpaperService {
       int screenRotationOld = screenRotation;
       screenRotation = window.getDefaultDisplay().getRotation();
       if (screenRotation != screenRotationOld) {
-        accelerationValues = null;
-        updateOffset(true, null);
+        if (sensorHandler != null) {
+          // Start the low-pass filter again with the values of the new rotation
+          sensorHandler.post(tiltFilter::reset);
+        }
+        updateOffset();
       } else {
-        // Not necessarily needed but recommended
-        drawFrame(true, null);
+        drawFrame(null);
       }
+      // The surface has to show the frame when this returns
+      renderFrameAndWait();
     }
 
     @Override
@@ -454,6 +548,8 @@ public class LiveWallpaperService extends WallpaperService {
     public void onVisibilityChanged(boolean visible) {
       isVisible = visible;
       if (!visible) {
+        reportCoalescedFrames();
+        reportTiltSensor();
         return;
       }
 
@@ -463,13 +559,13 @@ public class LiveWallpaperService extends WallpaperService {
 
       isRtl = getResources().getConfiguration().getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
 
-      if (!wallpaper.isDepthStatic()) {
-        svgDrawable.applyRandomElevationToAll(0.1f);
+      if (svgDrawable != null) {
+        synchronized (renderLock) {
+          applyRandomEffects(svgDrawable);
+        }
       }
 
-      svgDrawable.applyRandomZoomRotationToAll(-zoomRotation, zoomRotation);
-
-      updateOffset(true, null);
+      updateOffset();
     }
 
     @Override
@@ -487,7 +583,8 @@ public class LiveWallpaperService extends WallpaperService {
         offsetX = xOffset;
       }
       if (animSwipe()) {
-        updateOffset(true, null);
+        onMotion();
+        updateOffset();
       }
     }
 
@@ -518,6 +615,8 @@ public class LiveWallpaperService extends WallpaperService {
 
     private void loadSettings() {
       useRandom = sharedPrefs.getBoolean(PREF.RANDOM, DEF.RANDOM);
+      // The random selection could have changed
+      releasePrefetchedWallpaper();
 
       parallax = sharedPrefs.getInt(PREF.PARALLAX, DEF.PARALLAX);
       // disables zooming so this should not be disabled
@@ -528,36 +627,25 @@ public class LiveWallpaperService extends WallpaperService {
       dampingZoom = sharedPrefs.getInt(PREF.DAMPING_ZOOM, DEF.DAMPING_ZOOM);
       useZoomDamping = sharedPrefs.getBoolean(PREF.USE_ZOOM_DAMPING, DEF.USE_ZOOM_DAMPING);
       tiltThreshold = sharedPrefs.getInt(PREF.THRESHOLD, DEF.THRESHOLD);
-      if (hasAccelerometer && isTiltEnabled && !isListenerRegistered) {
-        sensorManager.registerListener(
-            sensorListener,
-            SensorUtil.getAccelerometer(context),
-            // SENSOR_DELAY_GAME = 20000
-            // SENSOR_DELAY_UI = 66667
-            sharedPrefs.getInt(PREF.REFRESH_RATE, DEF.REFRESH_RATE)
-        );
-        isListenerRegistered = true;
-      } else if (hasAccelerometer && isTiltEnabled) {
-        sensorManager.unregisterListener(sensorListener);
-        isListenerRegistered = false;
-        sensorManager.registerListener(
-            sensorListener,
-            SensorUtil.getAccelerometer(context),
-            // SENSOR_DELAY_GAME = 20000
-            // SENSOR_DELAY_UI = 66667
-            sharedPrefs.getInt(PREF.REFRESH_RATE, DEF.REFRESH_RATE)
-        );
-        isListenerRegistered = true;
-      } else if (isListenerRegistered) {
-        sensorManager.unregisterListener(sensorListener);
-        isListenerRegistered = false;
+      if (tiltController != null && isTiltEnabled) {
+        // SENSOR_DELAY_GAME = 20000
+        // SENSOR_DELAY_UI = 66667
+        tiltController.start(sharedPrefs.getInt(PREF.REFRESH_RATE, DEF.REFRESH_RATE));
+      } else if (tiltController != null) {
+        tiltController.stop();
       }
 
       scale = sharedPrefs.getFloat(
           PREF.SCALE, SvgDrawable.getDefaultScale(context)
       );
+      depthLayerCount = sharedPrefs.getInt(PREF.DEPTH_LAYERS, DEF.DEPTH_LAYERS);
+      frameRateLimit = sharedPrefs.getInt(PREF.FRAME_RATE, DEF.FRAME_RATE);
+      applyFrameRate();
       if (svgDrawable != null) {
-        svgDrawable.setScale(scale);
+        synchronized (renderLock) {
+          svgDrawable.setScale(scale);
+          svgDrawable.setDepthLayerCount(depthLayerCount);
+        }
       }
       zoomIntensity = sharedPrefs.getInt(PREF.ZOOM, DEF.ZOOM);
       isZoomLauncherEnabled = sharedPrefs.getBoolean(PREF.ZOOM_LAUNCHER, DEF.ZOOM_LAUNCHER);
@@ -580,13 +668,18 @@ public class LiveWallpaperService extends WallpaperService {
       } else {
         wallpaper = Constants.getWallpaper(sharedPrefs.getString(PREF.WALLPAPER, DEF.WALLPAPER));
       }
+      loadThemeSettings();
+      loadWallpaper();
+      notifyColorsChangedSafely();
+    }
+
+    private void loadThemeSettings() {
       nightMode = sharedPrefs.getInt(PREF.NIGHT_MODE, DEF.NIGHT_MODE);
       useWhiteText = sharedPrefs.getBoolean(PREF.USE_WHITE_TEXT, DEF.USE_WHITE_TEXT);
       isNight = isNightMode();
+    }
 
-      loadWallpaper();
-      svgDrawable.setScale(scale);
-
+    private void notifyColorsChangedSafely() {
       if (VERSION.SDK_INT >= VERSION_CODES.O_MR1) {
         // NullPointerException on many devices!?
         try {
@@ -600,35 +693,252 @@ public class LiveWallpaperService extends WallpaperService {
       }
     }
 
-    @SuppressWarnings("SuspiciousNameCombination")
-    private void updateOffset(boolean force, String source) {
-      float xOffset = parallax != 0 ? offsetX : 0;
-      int tiltFactor = 18 * parallax * (isTiltEnabled ? 1 : 0);
-      float finalTiltX, finalTiltY;
-      switch (screenRotation) {
-        case Surface.ROTATION_90:
-          finalTiltX = tiltY;
-          finalTiltY = -tiltX;
-          break;
-        case Surface.ROTATION_180:
-          finalTiltX = -tiltX;
-          finalTiltY = -tiltY;
-          break;
-        case Surface.ROTATION_270:
-          finalTiltX = -tiltY;
-          finalTiltY = tiltX;
-          break;
-        case Surface.ROTATION_0:
-        default:
-          finalTiltX = tiltX;
-          finalTiltY = tiltY;
-          break;
+    /**
+     * Loads the wallpaper in the background, until it is ready the background color of the variant
+     * is drawn. A load which is still in progress is cancelled.
+     */
+    private void loadWallpaper() {
+      boolean isNightMode = isNightMode();
+      variantIndex = getVariantIndex(wallpaper);
+      variant = getVariant(wallpaper, variantIndex, isNightMode);
+
+      if (loadFuture != null) {
+        loadFuture.cancel(false);
+      }
+      int prefetchThreadId = LiveWallpaperService.this.prefetchThreadId;
+      if (prefetchFuture != null && prefetchThreadId != 0) {
+        // The load may have to wait for the prefetch if both need the same SVG
+        // The thread id is 0 until the thread started, which would affect the calling thread
+        Process.setThreadPriority(prefetchThreadId, Process.THREAD_PRIORITY_DEFAULT);
+      }
+      // The previous drawable is kept until the new one is ready, so a reload of the same
+      // wallpaper (e.g. after changing the theme colors) doesn't need to load it again
+      if (svgDrawable != null) {
+        SvgCache.release(svgDrawableRetired);
+        svgDrawableRetired = svgDrawable;
+        synchronized (renderLock) {
+          svgDrawable = null;
+        }
       }
-      svgDrawable.setOffset(
-          xOffset * parallax * 100 + finalTiltX * tiltFactor,
-          finalTiltY * tiltFactor
+
+      int generation = ++loadGeneration;
+      BaseWallpaper wallpaper = this.wallpaper;
+      int resId = variant.getSvgResId();
+      int variantIndex = this.variantIndex;
+      float scale = this.scale;
+      loadFuture = loadExecutor.submit(() -> {
+        SvgDrawable drawable = getPreparedSvg(
+            wallpaper, resId, variantIndex, isNightMode, scale
+        );
+        mainHandler.post(() -> onWallpaperLoaded(drawable, generation));
+      });
+      drawFrame(null);
+    }
+
+    private int getVariantIndex(BaseWallpaper wallpaper) {
+      int variantIndex = sharedPrefs.getInt(
+          Constants.VARIANT_PREFIX + wallpaper.getName(), 0
       );
-      drawFrame(force, source);
+      // This method is more efficient
+      if (variantIndex >= wallpaper.getVariants().length
+          || variantIndex >= wallpaper.getDarkVariants().length) {
+        variantIndex = 0;
+      }
+      return variantIndex;
+    }
+
+    private WallpaperVariant getVariant(
+        BaseWallpaper wallpaper, int variantIndex, boolean isNightMode
+    ) {
+      if (isNightMode) {
+        return wallpaper.getDarkVariants()[variantIndex];
+      } else {
+        return wallpaper.getVariants()[variantIndex];
+      }
+    }
+
+    /**
+     * Called on a background thread, the returned drawable has to be released
+     */
+    private SvgDrawable getPreparedSvg(
+        BaseWallpaper wallpaper, int resId, int variantIndex, boolean isNightMode, float scale
+    ) {
+      SvgDrawable drawable = SvgCache.acquire(context, resId, scale);
+      SvgDrawable prepared = wallpaper.getPreparedSvg(drawable, variantIndex, isNightMode);
+      if (prepared == null) {
+        SvgCache.release(drawable);
+        // Prevent NullPointerExceptions
+        prepared = wallpaper.getPreparedSvg(
+            SvgCache.acquire(context, R.raw.wallpaper_pixel1, scale), 1, false
+        );
+      }
+      if (wallpaper.isDepthStatic()) {
+        prepared.applyRelativeElevationToAll(0.2f);
+      }
+      return prepared;
+    }
+
+    /**
+     * Prefetches the next random wallpaper after PREFETCH_DELAY, but not while the screen is off
+     */
+    private void schedulePrefetch() {
+      isPrefetchScheduled = true;
+      mainHandler.removeCallbacks(prefetchRunnable);
+      if (!USER_PRESENCE.OFF.equals(presence)) {
+        mainHandler.postDelayed(prefetchRunnable, PREFETCH_DELAY);
+      }
+    }
+
+    /**
+     * Picks the next random wallpaper and loads it with low priority, so on screen-off it only
+     * has to be swapped in. Only one wallpaper is prefetched at a time and none on low-RAM devices.
+     */
+    private void prefetchRandomWallpaper() {
+      releasePrefetchedWallpaper();
+      isPrefetchScheduled = false;
+      mainHandler.removeCallbacks(prefetchRunnable);
+      ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+      if (!useRandom || isPreview() || activityManager.isLowRamDevice()) {
+        return;
+      }
+      BaseWallpaper wallpaper = Constants.getRandomWallpaper(
+          sharedPrefs.getStringSet(PREF.RANDOM_LIST, DEF.RANDOM_LIST), this.wallpaper.getName()
+      );
+      boolean isNightMode = isNightMode();
+      int variantIndex = getVariantIndex(wallpaper);
+      WallpaperVariant variant = getVariant(wallpaper, variantIndex, isNightMode);
+
+      int generation = ++prefetchGeneration;
+      float scale = this.scale;
+      prefetchFuture = prefetchExecutor.submit(() -> {
+        // Reset after a regular load boosted the previous prefetch
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        SvgDrawable prepared = getPreparedSvg(
+            wallpaper, variant.getSvgResId(), variantIndex, isNightMode, scale
+        );
+        long byteCount = prepared.getImageByteCount();
+        SvgDrawable drawable;
+        if (byteCount > PREFETCH_MAX_BYTES) {
+          Log.i(TAG, "prefetchRandomWallpaper: skipped " + wallpaper.getName()
+              + ", images need " + byteCount + " bytes");
+          SvgCache.release(prepared);
+          drawable = null;
+        } else {
+          drawable = prepared;
+        }
+        mainHandler.post(() -> {
+          if (isDestroyed || generation != prefetchGeneration) {
+            SvgCache.release(drawable);
+            return;
+          }
+          prefetchFuture = null;
+          if (drawable == null) {
+            // Loaded regularly on the next screen-off
+            return;
+          }
+          prefetchedWallpaper = new PrefetchedWallpaper(
+              wallpaper, variant, variantIndex, isNightMode, drawable
+          );
+        });
+      });
+    }
+
+    /**
+     * @return false if no matching wallpaper is prefetched, it has to be loaded regularly then
+     */
+    private boolean applyPrefetchedWallpaper() {
+      PrefetchedWallpaper prefetched = prefetchedWallpaper;
+      prefetchedWallpaper = null;
+      loadThemeSettings();
+      // The variant may have been changed by the user since the prefetch
+      if (prefetched == null || prefetched.isNightMode != isNight
+          || prefetched.variantIndex != getVariantIndex(prefetched.wallpaper)) {
+        if (prefetched != null) {
+          SvgCache.release(prefetched.drawable);
+        }
+        return false;
+      }
+
+      // Cancel a regular load which is still in progress
+      if (loadFuture != null) {
+        loadFuture.cancel(false);
+        loadFuture = null;
+      }
+      loadGeneration++;
+      wallpaper = prefetched.wallpaper;
+      variant = prefetched.variant;
+      variantIndex = prefetched.variantIndex;
+      // The new drawable is prepared before the render thread can see it
+      prefetched.drawable.setScale(scale);
+      prefetched.drawable.setDepthLayerCount(depthLayerCount);
+      prefetched.drawable.setImageListener(imageListener);
+      applyRandomEffects(prefetched.drawable);
+      SvgDrawable previous = svgDrawable;
+      synchronized (renderLock) {
+        svgDrawable = prefetched.drawable;
+      }
+      SvgCache.release(previous);
+      SvgCache.release(svgDrawableRetired);
+      svgDrawableRetired = null;
+      notifyColorsChangedSafely();
+
+      // Not started right away, the screen is just turning off
+      schedulePrefetch();
+      return true;
+    }
+
+    void releasePrefetchedWallpaper() {
+      prefetchGeneration++;
+      if (prefetchFuture != null) {
+        prefetchFuture.cancel(false);
+        prefetchFuture = null;
+      }
+      if (prefetchedWallpaper != null) {
+        SvgCache.release(prefetchedWallpaper.drawable);
+        prefetchedWallpaper = null;
+      }
+    }
+
+    private void onWallpaperLoaded(SvgDrawable drawable, int generation) {
+      if (isDestroyed || generation != loadGeneration) {
+        // Outdated, a newer load is in progress or the engine is gone
+        SvgCache.release(drawable);
+        return;
+      }
+      loadFuture = null;
+      // The new drawable is prepared before the render thread can see it
+      drawable.setScale(scale);
+      drawable.setDepthLayerCount(depthLayerCount);
+      drawable.setImageListener(imageListener);
+      applyRandomEffects(drawable);
+      synchronized (renderLock) {
+        svgDrawable = drawable;
+      }
+      SvgCache.release(svgDrawableRetired);
+      svgDrawableRetired = null;
+      updateOffset();
+
+      if (useRandom && prefetchedWallpaper == null && prefetchFuture == null) {
+        schedulePrefetch();
+      }
+    }
+
+    private void applyRandomEffects(SvgDrawable drawable) {
+      if (!wallpaper.isDepthStatic()) {
+        drawable.applyRandomElevationToAll(0.1f);
+      }
+      drawable.applyRandomZoomRotationToAll(-zoomRotation, zoomRotation);
+    }
+
+    private void updateOffset() {
+      float xOffset = parallax != 0 ? offsetX : 0;
+      synchronized (frameStateLock) {
+        frameOffsetX = xOffset * parallax * 100;
+        // The tilt is added on the render thread, it is updated without the main thread
+        frameTiltFactor = 18 * parallax * (isTiltEnabled ? 1 : 0);
+        frameScreenRotation = screenRotation;
+      }
+      drawFrame(null);
     }
 
     /**
@@ -648,7 +958,7 @@ public class LiveWallpaperService extends WallpaperService {
           } else {
             zoomLauncher = zoomInterpolator.getInterpolation(zoom);
           }
-          drawFrame(false, REQUEST_SOURCE.ZOOM_LAUNCHER);
+          drawFrame(REQUEST_SOURCE.ZOOM_LAUNCHER);
         }
       }
     }
@@ -657,7 +967,9 @@ public class LiveWallpaperService extends WallpaperService {
     public void onPresenceChange(String presence) {
       switch (presence) {
         case USER_PRESENCE.OFF:
-          if (useRandom) {
+          // Postponed until the screen is on again
+          mainHandler.removeCallbacks(prefetchRunnable);
+          if (useRandom && !applyPrefetchedWallpaper()) {
             loadTheme(true);
           }
           if (isZoomUnlockEnabled && animZoom()) {
@@ -665,21 +977,27 @@ public class LiveWallpaperService extends WallpaperService {
             zoomLauncher = 0; // 1 or 0?
           }
           if (useRandom || (isZoomUnlockEnabled && animZoom())) {
-            drawFrame(true, null);
+            drawFrame(null);
           }
           break;
         case USER_PRESENCE.LOCKED:
+          if (isPrefetchScheduled) {
+            schedulePrefetch();
+          }
           if (isZoomUnlockEnabled && animZoom()) {
             zoomLauncher = 0;
             animateZoom(0.5f);
           }
           break;
         case USER_PRESENCE.UNLOCKED:
+          if (isPrefetchScheduled) {
+            schedulePrefetch();
+          }
           if (isVisible && animZoom()) {
             animateZoom(0);
           } else {
             zoomUnlock = 0;
-            drawFrame(true, null);
+            drawFrame(null);
           }
           break;
       }
@@ -693,91 +1011,274 @@ public class LiveWallpaperService extends WallpaperService {
     @Override
     public void onRefreshSettings() {
       loadSettings();
+      if (useRandom && svgDrawable != null) {
+        // The settings may affect the next wallpaper, but it isn't needed before screen-off
+        releasePrefetchedWallpaper();
+        schedulePrefetch();
+      }
+    }
+
+    @Override
+    public void onRefreshFrameRate() {
+      applyFrameRate();
     }
 
-    void drawFrame(boolean force, String source) {
-      if (!isDrawingAllowed(force, source)) {
+    /**
+     * Limits the frame rate to the user's choice and further in battery saver. The render
+     * scheduler skips vsyncs accordingly, which also paces the unlock zoom animation, and on
+     * Android 11+ the surface tells the display that a lower refresh rate is sufficient.
+     */
+    private void applyFrameRate() {
+      float displayRate = getDisplayRefreshRate();
+      float rate = displayRate;
+      if (frameRateLimit > 0) {
+        rate = Math.min(rate, frameRateLimit);
+      }
+      if (isPowerSaveMode) {
+        rate = Math.min(rate, POWER_SAVE_FRAME_RATE);
+      }
+      boolean isLimited = rate < displayRate;
+      // Half a display frame of tolerance, vsync timestamps are not exact
+      minFrameIntervalNanos = isLimited ? (long) (1e9 / rate - 0.5e9 / displayRate) : 0;
+
+      if (VERSION.SDK_INT >= VERSION_CODES.R && isSurfaceAvailable) {
+        Surface surface = getSurfaceHolder().getSurface();
+        if (surface != null && surface.isValid()) {
+          try {
+            // 0 means no preference, the display then runs at its default rate
+            surface.setFrameRate(
+                isLimited ? rate : 0, Surface.FRAME_RATE_COMPATIBILITY_DEFAULT
+            );
+          } catch (Exception e) {
+            Log.e(TAG, "applyFrameRate", e);
+          }
+        }
+      }
+    }
+
+    /**
+     * Only updates the frame state, the frame is drawn with the latest state on the next vsync of
+     * the render thread. All requests until then are coalesced into this frame.
+     *
+     * @param source REQUEST_SOURCE of a motion or null
+     */
+    void drawFrame(String source) {
+      if (isDestroyed) {
         // Cancel drawing request
         return;
-      } else if (!isSurfaceAvailable || getSurfaceHolder().getSurface() == null) {
+      }
+      // ZOOM
+      float intensity = zoomIntensity / 10f;
+      double finalZoomLauncher = isZoomLauncherEnabled ? zoomLauncher * intensity : 0;
+      double finalZoomUnlock = isZoomUnlockEnabled ? zoomUnlock * intensity : 0;
+      synchronized (frameStateLock) {
+        frameZoom = (float) (finalZoomLauncher + finalZoomUnlock);
+        framePlaceholderColor = variant.getPrimaryColor();
+      }
+      requestFrame(source != null);
+    }
+
+    /**
+     * Requests a frame with the current state, may be called from any thread
+     *
+     * @param isMotion true if the frame is part of a swipe, tilt or zoom
+     */
+    private void requestFrame(boolean isMotion) {
+      if (!isSurfaceAvailable) {
         // Cancel drawing request
         return;
-      } else if (!getSurfaceHolder().getSurface().isValid()) {
-        // Prevents IllegalStateException when surface is not ready
-        return;
       }
-      final SurfaceHolder surfaceHolder = getSurfaceHolder();
-      Canvas canvas = null;
-      try {
-        if (VERSION.SDK_INT >= VERSION_CODES.O && useGpu) {
-          canvas = surfaceHolder.lockHardwareCanvas();
-        } else {
-          canvas = surfaceHolder.lockCanvas();
+      if (isMotion) {
+        onMotion();
+      }
+      synchronized (frameStateLock) {
+        requestedFrameCount++;
+        if (isFrameRequested) {
+          // The scheduled frame will pick up this state
+          coalescedFrameCount++;
+          return;
         }
+        isFrameRequested = true;
+      }
+      renderHandler.post(scheduleFrameRunnable);
+    }
 
-        if (canvas != null) {
-          // ZOOM
-          float intensity = zoomIntensity / 10f;
-          double finalZoomLauncher = isZoomLauncherEnabled ? zoomLauncher * intensity : 0;
-          double finalZoomUnlock = isZoomUnlockEnabled ? zoomUnlock * intensity : 0;
-          svgDrawable.setZoom((float) (finalZoomLauncher + finalZoomUnlock));
-
-          svgDrawable.draw(canvas);
-
-          if (source != null) {
-            switch (source) {
-              case REQUEST_SOURCE.ZOOM_LAUNCHER:
-                lastDrawZoomLauncher = SystemClock.elapsedRealtime();
-                break;
-              case REQUEST_SOURCE.ZOOM_UNLOCK:
-                lastDrawZoomUnlock = SystemClock.elapsedRealtime();
-                break;
-              case REQUEST_SOURCE.TILT:
-                lastDrawTilt = SystemClock.elapsedRealtime();
-                break;
-            }
-          }
+    /**
+     * Logs how many sensor events were received, how many of them requested a frame and how long
+     * the sensor was sampled at which rate
+     */
+    private void reportTiltSensor() {
+      if (DEBUG && tiltController != null) {
+        Log.d(TAG, "reportTiltSensor: " + tiltController.getEventCount() + " events, "
+            + tiltController.getFrameCount() + " frames, "
+            + tiltController.getActiveTime() + "ms active, "
+            + tiltController.getIdleTime() + "ms idle");
+      }
+    }
+
+    /**
+     * Logs and resets how many frame requests were merged into already scheduled frames
+     */
+    private void reportCoalescedFrames() {
+      synchronized (frameStateLock) {
+        if (DEBUG && requestedFrameCount > 0) {
+          Log.d(TAG, "reportCoalescedFrames: " + coalescedFrameCount + " of "
+              + requestedFrameCount + " requests coalesced");
         }
-      } catch (Exception e) {
-        Log.e(TAG, "drawFrame: unexpected exception", e);
-      } finally {
+        requestedFrameCount = 0;
+        coalescedFrameCount = 0;
+      }
+    }
+
+    /**
+     * Draws a complete frame with the current state on the render thread and blocks until it is
+     * posted to the surface or REDRAW_TIMEOUT passed
+     */
+    private void renderFrameAndWait() {
+      if (isDestroyed || !isSurfaceAvailable) {
+        return;
+      }
+      CountDownLatch latch = new CountDownLatch(1);
+      boolean isPosted = renderHandler.postAtFrontOfQueue(() -> {
         try {
-          if (canvas != null && isSurfaceAvailable) {
-            surfaceHolder.unlockCanvasAndPost(canvas);
-          }
-        } catch (Exception e) {
-          Log.e(TAG, "drawFrame: unlocking canvas failed", e);
+          renderFrame(true);
+        } finally {
+          latch.countDown();
+        }
+      });
+      if (!isPosted) {
+        // The render thread has already quit
+        return;
+      }
+      try {
+        if (!latch.await(REDRAW_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          Log.w(TAG, "renderFrameAndWait: frame not drawn within " + REDRAW_TIMEOUT + "ms");
         }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
       }
     }
 
-    private boolean isDrawingAllowed(boolean force, String source) {
-      if (force || zoomLauncher == 0 || zoomLauncher == 1 || zoomUnlock == 0 || zoomUnlock == 1) {
-        return true;
-      } else if (source != null) {
-        if (source.equals(REQUEST_SOURCE.ZOOM_LAUNCHER)
-            && SystemClock.elapsedRealtime() - lastDrawZoomLauncher < 1000 / fps) {
-          return true;
-        } else if (source.equals(REQUEST_SOURCE.ZOOM_UNLOCK)
-            && SystemClock.elapsedRealtime() - lastDrawZoomUnlock < 1000 / fps) {
-          return true;
-        } else {
-          return source.equals(REQUEST_SOURCE.TILT)
-              && SystemClock.elapsedRealtime() - lastDrawTilt < 1000 / fps;
-        }
-      } else {
-        return false;
+    /**
+     * Called on the render thread
+     */
+    private void onVsync(long frameTimeNanos) {
+      if (frameTimeNanos - lastFrameTimeNanos < minFrameIntervalNanos) {
+        // Too early for the frame rate limit, the request stays pending until a later vsync
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+        return;
       }
+      lastFrameTimeNanos = frameTimeNanos;
+      renderFrame(false);
     }
 
-    private float[] lowPassAcceleration(float[] input, float[] output) {
-      if (output == null) {
-        return input.clone();
+    /**
+     * Called on the render thread
+     *
+     * @param isFull true if the whole surface has to be drawn, not only the dirty region
+     */
+    @SuppressWarnings("SuspiciousNameCombination")
+    private void renderFrame(boolean isFull) {
+      float offsetX, zoom;
+      int tiltFactor, screenRotation, placeholderColor;
+      synchronized (frameStateLock) {
+        isFrameRequested = false;
+        offsetX = frameOffsetX;
+        zoom = frameZoom;
+        tiltFactor = frameTiltFactor;
+        screenRotation = frameScreenRotation;
+        placeholderColor = framePlaceholderColor;
       }
-      for (int i = 0; i < input.length; i++) {
-        output[i] = output[i] + (dampingTilt / 100f) * (input[i] - output[i]);
+      boolean lowDetail = SystemClock.uptimeMillis() - lastMotionTime < MOTION_END_DELAY;
+
+      long packedTilt = tiltFilter.getTilt();
+      float tiltX = TiltFilter.getTiltX(packedTilt);
+      float tiltY = TiltFilter.getTiltY(packedTilt);
+      float finalTiltX, finalTiltY;
+      switch (screenRotation) {
+        case Surface.ROTATION_90:
+          finalTiltX = tiltY;
+          finalTiltY = -tiltX;
+          break;
+        case Surface.ROTATION_180:
+          finalTiltX = -tiltX;
+          finalTiltY = -tiltY;
+          break;
+        case Surface.ROTATION_270:
+          finalTiltX = -tiltY;
+          finalTiltY = tiltX;
+          break;
+        case Surface.ROTATION_0:
+        default:
+          finalTiltX = tiltX;
+          finalTiltY = tiltY;
+          break;
       }
-      return output;
+      offsetX += finalTiltX * tiltFactor;
+      float offsetY = finalTiltY * tiltFactor;
+
+      synchronized (renderLock) {
+        final SurfaceHolder surfaceHolder = getSurfaceHolder();
+        if (!isSurfaceAvailable || surfaceHolder.getSurface() == null) {
+          return;
+        } else if (!surfaceHolder.getSurface().isValid()) {
+          // Prevents IllegalStateException when surface is not ready
+          return;
+        }
+        Canvas canvas = null;
+        try {
+          if (svgDrawable != null) {
+            svgDrawable.setOffset(offsetX, offsetY);
+            svgDrawable.setLowDetail(lowDetail);
+            svgDrawable.setZoom(zoom);
+          }
+
+          boolean isPartial = false;
+          if (VERSION.SDK_INT >= VERSION_CODES.O && useGpu) {
+            canvas = surfaceHolder.lockHardwareCanvas();
+          } else if (!isFull && svgDrawable != null && svgDrawable.getDirtyRegion(
+              surfaceHolder.getSurfaceFrame().width(),
+              surfaceHolder.getSurfaceFrame().height(),
+              dirtyRegion
+          )) {
+            if (dirtyRegion.isEmpty()) {
+              // Nothing visible has changed
+              return;
+            }
+            // The surface copies the rest from the previous frame and may extend the region
+            canvas = surfaceHolder.lockCanvas(dirtyRegion);
+            isPartial = true;
+          } else {
+            canvas = surfaceHolder.lockCanvas();
+          }
+
+          if (canvas != null && svgDrawable == null) {
+            // Placeholder while the wallpaper is loading
+            canvas.drawColor(placeholderColor);
+          } else if (canvas != null) {
+            svgDrawable.draw(canvas, isPartial ? dirtyRegion : null);
+          }
+        } catch (Exception e) {
+          Log.e(TAG, "renderFrame: unexpected exception", e);
+        } finally {
+          try {
+            if (canvas != null) {
+              surfaceHolder.unlockCanvasAndPost(canvas);
+            }
+          } catch (Exception e) {
+            Log.e(TAG, "renderFrame: unlocking canvas failed", e);
+          }
+        }
+      }
+    }
+
+    /**
+     * Simplified paths are drawn until there was no motion for MOTION_END_DELAY
+     */
+    private void onMotion() {
+      lastMotionTime = SystemClock.uptimeMillis();
+      renderHandler.removeCallbacks(motionEndRunnable);
+      renderHandler.postDelayed(motionEndRunnable, MOTION_END_DELAY);
     }
 
     private float lowPassZoom(float input, float output) {
@@ -794,7 +1295,7 @@ public class LiveWallpaperService extends WallpaperService {
       zoomAnimator = ValueAnimator.ofFloat(zoomUnlock, valueTo);
       zoomAnimator.addUpdateListener(animation -> {
         zoomUnlock = (float) animation.getAnimatedValue();
-        drawFrame(false, REQUEST_SOURCE.ZOOM_UNLOCK);
+        drawFrame(REQUEST_SOURCE.ZOOM_UNLOCK);
       });
       zoomAnimator.setInterpolator(zoomInterpolator);
       zoomAnimator.setDuration(zoomDuration).start();
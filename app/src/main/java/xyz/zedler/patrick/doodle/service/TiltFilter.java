@@ -0,0 +1,84 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.service;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Low-pass filter for the accelerometer values of the tilt effect. The filtered tilt is published
+ * with every event, so frames requested for other reasons (e.g. a swipe) show the latest tilt, but
+ * only movement needs a new frame.
+ * Events are filtered on one thread, the tilt can be read from any thread.
+ */
+public class TiltFilter {
+
+  private final TiltHistory history;
+  // Latest tilt values, packed into one long so they are always published together
+  private final AtomicLong tilt = new AtomicLong();
+  private float[] values;
+
+  public TiltFilter(int historySize) {
+    history = new TiltHistory(historySize);
+  }
+
+  /**
+   * @param damping   factor of the low-pass filter from 0 to 1
+   * @param tolerance deviation from the average tilt which is caused by the sensor, not movement
+   * @return true if the device is moved and a frame is needed
+   */
+  public boolean filter(@NonNull float[] input, float damping, float tolerance) {
+    if (values == null) {
+      values = input.clone();
+    } else {
+      for (int i = 0; i < input.length; i++) {
+        values[i] = values[i] + damping * (input[i] - values[i]);
+      }
+    }
+    float tiltX = values[0];
+    float tiltY = -values[1];
+    tilt.set(((long) Float.floatToRawIntBits(tiltX) << 32)
+        | (Float.floatToRawIntBits(tiltY) & 0xFFFFFFFFL));
+    history.add(tiltX, tiltY);
+    return history.isMoving(tolerance);
+  }
+
+  /**
+   * Starts the low-pass filter again with the next values, e.g. after the screen was rotated
+   */
+  public void reset() {
+    values = null;
+  }
+
+  /**
+   * @return both tilt values packed into one long, see getTiltX() and getTiltY()
+   */
+  public long getTilt() {
+    return tilt.get();
+  }
+
+  public static float getTiltX(long tilt) {
+    return Float.intBitsToFloat((int) (tilt >> 32));
+  }
+
+  public static float getTiltY(long tilt) {
+    return Float.intBitsToFloat((int) tilt);
+  }
+}
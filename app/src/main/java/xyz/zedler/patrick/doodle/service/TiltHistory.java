@@ -0,0 +1,129 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.service;
+
+/**
+ * Sliding window of the latest tilt values without allocations. The averages are kept as running
+ * sums and the extremes in monotonic deques, so the movement test doesn't need to look at every
+ * value of the window.
+ */
+public class TiltHistory {
+
+  private final int capacity;
+  private final float[] valuesX, valuesY;
+  private final Extremes maxX, minX, maxY, minY;
+  private long count;
+  private double sumX, sumY;
+
+  public TiltHistory(int capacity) {
+    this.capacity = capacity;
+    valuesX = new float[capacity];
+    valuesY = new float[capacity];
+    maxX = new Extremes(capacity, true);
+    minX = new Extremes(capacity, false);
+    maxY = new Extremes(capacity, true);
+    minY = new Extremes(capacity, false);
+  }
+
+  /**
+   * Adds the latest values, the oldest ones are dropped if the window is full
+   */
+  public void add(float x, float y) {
+    int position = (int) (count % capacity);
+    if (count >= capacity) {
+      sumX -= valuesX[position];
+      sumY -= valuesY[position];
+    }
+    valuesX[position] = x;
+    valuesY[position] = y;
+    sumX += x;
+    sumY += y;
+
+    long oldest = count - capacity + 1;
+    maxX.add(x, count, oldest);
+    minX.add(x, count, oldest);
+    maxY.add(y, count, oldest);
+    minY.add(y, count, oldest);
+    count++;
+  }
+
+  public int size() {
+    return (int) Math.min(count, capacity);
+  }
+
+  /**
+   * @return true if any value of the window is further away from the average than the tolerance,
+   * measured away from zero
+   */
+  public boolean isMoving(float tolerance) {
+    if (count == 0) {
+      return false;
+    }
+    float averageX = (float) (sumX / size());
+    float averageY = (float) (sumY / size());
+    boolean isMovingX = averageX >= 0
+        ? maxX.peek() > averageX + tolerance
+        : minX.peek() < averageX - tolerance;
+    boolean isMovingY = averageY >= 0
+        ? maxY.peek() > averageY + tolerance
+        : minY.peek() < averageY - tolerance;
+    return isMovingX || isMovingY;
+  }
+
+  /**
+   * Deque of the values which can still become the maximum (or minimum) of the window, in
+   * decreasing (or increasing) order. Every value is added and removed once.
+   */
+  private static class Extremes {
+
+    private final float[] values;
+    private final long[] indices;
+    private final boolean isMax;
+    private int head, size;
+
+    Extremes(int capacity, boolean isMax) {
+      values = new float[capacity];
+      indices = new long[capacity];
+      this.isMax = isMax;
+    }
+
+    void add(float value, long index, long oldestIndex) {
+      while (size > 0 && indices[head] < oldestIndex) {
+        head = (head + 1) % values.length;
+        size--;
+      }
+      while (size > 0) {
+        float last = values[(head + size - 1) % values.length];
+        if (isMax ? last > value : last < value) {
+          break;
+        }
+        size--;
+      }
+      int tail = (head + size) % values.length;
+      values[tail] = value;
+      indices[tail] = index;
+      size++;
+    }
+
+    float peek() {
+      return values[head];
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.service;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+/**
+ * Registers the accelerometer for the tilt effect. While the device is not moved, it is sampled
+ * at a low rate and delivered in batches, so the CPU doesn't need to wake up for every sample. The
+ * configured rate is restored as soon as the tilt listener detects movement again.
+ * Events are delivered on the thread of the given handler, the other methods may be called from
+ * any thread.
+ */
+public class TiltSensorController implements SensorEventListener {
+
+  // Time without movement until the low rate is used
+  private static final long IDLE_DELAY = 3000;
+  private static final int IDLE_PERIOD_US = 200000;
+  // The first movement after idling is reported with this delay at most
+  private static final int IDLE_MAX_REPORT_LATENCY_US = 400000;
+  // No batching while moving, the samples are needed for the next frame
+  private static final int ACTIVE_MAX_REPORT_LATENCY_US = 0;
+
+  private final SensorManager sensorManager;
+  private final Sensor sensor;
+  private final Handler handler;
+  private final TiltListener listener;
+  private int periodUs;
+  private boolean isStarted, isIdle;
+  private long lastMovementTime, stateStartTime, activeTime, idleTime;
+  private volatile long eventCount, frameCount;
+
+  public interface TiltListener {
+
+    /**
+     * @return true if the values caused movement and a frame was requested
+     */
+    boolean onTilt(float[] values);
+  }
+
+  public TiltSensorController(
+      @NonNull SensorManager sensorManager,
+      @NonNull Sensor sensor,
+      @NonNull Handler handler,
+      @NonNull TiltListener listener
+  ) {
+    this.sensorManager = sensorManager;
+    this.sensor = sensor;
+    this.handler = handler;
+    this.listener = listener;
+  }
+
+  /**
+   * Registers the sensor with the configured sampling period or applies a new one
+   */
+  public synchronized void start(int periodUs) {
+    if (isStarted && periodUs == this.periodUs) {
+      return;
+    }
+    this.periodUs = periodUs;
+    if (isStarted) {
+      sensorManager.unregisterListener(this);
+      updateStateTime();
+    }
+    isStarted = true;
+    isIdle = false;
+    lastMovementTime = SystemClock.elapsedRealtime();
+    stateStartTime = lastMovementTime;
+    register();
+  }
+
+  public synchronized void stop() {
+    if (!isStarted) {
+      return;
+    }
+    sensorManager.unregisterListener(this);
+    updateStateTime();
+    isStarted = false;
+  }
+
+  public synchronized boolean isStarted() {
+    return isStarted;
+  }
+
+  @Override
+  public void onSensorChanged(SensorEvent event) {
+    eventCount++;
+    boolean isMoving = listener.onTilt(event.values);
+    if (isMoving) {
+      frameCount++;
+    }
+    updateIdle(isMoving);
+  }
+
+  @Override
+  public void onAccuracyChanged(Sensor sensor, int accuracy) {
+  }
+
+  public long getEventCount() {
+    return eventCount;
+  }
+
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * @return time in milliseconds the sensor was sampled at the configured rate
+   */
+  public synchronized long getActiveTime() {
+    return activeTime + (isStarted && !isIdle ? getStateTime() : 0);
+  }
+
+  /**
+   * @return time in milliseconds the sensor was sampled at the low rate
+   */
+  public synchronized long getIdleTime() {
+    return idleTime + (isStarted && isIdle ? getStateTime() : 0);
+  }
+
+  private synchronized void updateIdle(boolean isMoving) {
+    if (!isStarted) {
+      // Event was already queued when the sensor was unregistered
+      return;
+    }
+    long now = SystemClock.elapsedRealtime();
+    if (isMoving) {
+      lastMovementTime = now;
+      if (isIdle) {
+        setIdle(false);
+      }
+    } else if (!isIdle && now - lastMovementTime > IDLE_DELAY) {
+      setIdle(true);
+    }
+  }
+
+  private void setIdle(boolean idle) {
+    // The rate of a registered listener can't be changed, it has to be registered again
+    sensorManager.unregisterListener(this);
+    updateStateTime();
+    isIdle = idle;
+    register();
+  }
+
+  private void register() {
+    if (isIdle) {
+      sensorManager.registerListener(
+          this, sensor, Math.max(periodUs, IDLE_PERIOD_US), IDLE_MAX_REPORT_LATENCY_US, handler
+      );
+    } else {
+      sensorManager.registerListener(
+          this, sensor, periodUs, ACTIVE_MAX_REPORT_LATENCY_US, handler
+      );
+    }
+  }
+
+  private void updateStateTime() {
+    if (isIdle) {
+      idleTime += getStateTime();
+    } else {
+      activeTime += getStateTime();
+    }
+    stateStartTime = SystemClock.elapsedRealtime();
+  }
+
+  private long getStateTime() {
+    return SystemClock.elapsedRealtime() - stateStartTime;
+  }
+}
@@ -23,11 +23,14 @@ import android.content.Context;
 import android.graphics.Canvas;
 import android.view.View;
 import androidx.annotation.RawRes;
+import xyz.zedler.patrick.doodle.drawable.SvgCache;
 import xyz.zedler.patrick.doodle.drawable.SvgDrawable;
 
 public class SvgView extends View {
 
   SvgDrawable drawable;
+  // Kept after detaching, so the drawable can be acquired again on attach
+  @RawRes private int resId;
 
   public SvgView(Context context) {
     super(context);
@@ -40,9 +43,35 @@ public class SvgView extends View {
     }
   }
 
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+
+    if (drawable == null && resId != 0) {
+      acquire();
+    }
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    super.onDetachedFromWindow();
+
+    SvgCache.release(drawable);
+    drawable = null;
+  }
+
   public void setSvg(@RawRes int resId) {
-    drawable = new SvgDrawable(getContext(), resId);
-    drawable.setScale(SvgDrawable.getDefaultScale(getContext()));
+    this.resId = resId;
+    SvgDrawable previous = drawable;
+    acquire();
+    SvgCache.release(previous);
+  }
+
+  private void acquire() {
+    float scale = SvgDrawable.getDefaultScale(getContext());
+    drawable = SvgCache.acquire(getContext(), resId, scale);
+    drawable.setScale(scale);
+    drawable.setImageListener(this::postInvalidate);
 
     invalidate();
   }
@@ -0,0 +1,95 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.drawable;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.GraphicsMode;
+import xyz.zedler.patrick.doodle.R;
+
+/**
+ * Frames are drawn up to 120 times per second, so SvgDrawable.draw(Canvas) must not allocate
+ * anything once the drawable is set up
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class SvgDrawableAllocationTest {
+
+  private static final int WARM_UP_FRAMES = 60; // depth layers grow to the visible areas
+  private static final int FRAMES = 50;
+
+  private final com.sun.management.ThreadMXBean threadBean
+      = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @Test
+  public void draw_allocatesNothing() {
+    assertEquals(0, getAllocatedBytesOfFrames(0));
+  }
+
+  @Test
+  public void drawDepthLayers_allocatesNothing() {
+    assertEquals(0, getAllocatedBytesOfFrames(3));
+  }
+
+  private long getAllocatedBytesOfFrames(int depthLayerCount) {
+    Context context = RuntimeEnvironment.getApplication();
+    float scale = SvgDrawable.getDefaultScale(context);
+    SvgDrawable drawable = new SvgDrawable(context, R.raw.wallpaper_pixel1);
+    drawable.setScale(scale);
+    drawable.decodeImages(scale);
+    drawable.setDepthLayerCount(depthLayerCount);
+    drawable.applyRandomElevationToAll(0.1f);
+    drawable.applyRandomZoomRotationToAll(-5, 5);
+    Canvas canvas = new Canvas(Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888));
+
+    for (int frame = 0; frame < WARM_UP_FRAMES; frame++) {
+      drawFrame(drawable, canvas, frame);
+    }
+    // The measurement itself may allocate, depending on the JVM
+    long overhead = -getAllocatedBytes() + getAllocatedBytes();
+    long start = getAllocatedBytes();
+    for (int frame = 0; frame < FRAMES; frame++) {
+      drawFrame(drawable, canvas, frame);
+    }
+    return getAllocatedBytes() - start - overhead;
+  }
+
+  /**
+   * Swipe with tilt and zoom, the motion alternates with frames in full detail
+   */
+  private static void drawFrame(SvgDrawable drawable, Canvas canvas, int frame) {
+    drawable.setOffset(frame % 10 * 10, frame % 5 * 4);
+    drawable.setZoom(frame % 4 * 0.1f);
+    drawable.setLowDetail(frame % 2 == 0);
+    drawable.draw(canvas);
+  }
+
+  private long getAllocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.drawable;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.TypedValue;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.GraphicsMode;
+import xyz.zedler.patrick.doodle.R;
+
+/**
+ * Compares the number of path verbs of every wallpaper in full detail and while in motion
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class SvgDrawableDetailTest {
+
+  @Test
+  public void lowDetail_hasFewerVerbs() throws Exception {
+    Context context = RuntimeEnvironment.getApplication();
+    List<Integer> resIds = getSvgResIds(context);
+    assertFalse(resIds.isEmpty());
+
+    int totalFull = 0, totalLow = 0;
+    for (int resId : resIds) {
+      SvgDrawable drawable = new SvgDrawable(context, resId);
+      int full = drawable.getVerbCount(false);
+      int low = drawable.getVerbCount(true);
+      String report = context.getResources().getResourceEntryName(resId)
+          + ": " + full + " verbs, " + low + " in motion";
+      System.out.println(report);
+      assertTrue(report, low <= full);
+      totalFull += full;
+      totalLow += low;
+    }
+    String report = "All wallpapers: " + totalFull + " verbs, " + totalLow + " in motion";
+    System.out.println(report);
+    assertTrue(report, totalLow < totalFull);
+  }
+
+  private static List<Integer> getSvgResIds(Context context) throws Exception {
+    Resources resources = context.getResources();
+    TypedValue value = new TypedValue();
+    List<Integer> resIds = new ArrayList<>();
+    for (Field field : R.raw.class.getFields()) {
+      int resId = field.getInt(null);
+      resources.getValue(resId, value, true);
+      if (value.string != null && value.string.toString().endsWith(".svg")) {
+        // Texts, images and other raw resources are skipped
+        resIds.add(resId);
+      }
+    }
+    return resIds;
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Replays accelerometer values through TiltFilter and through the list-based implementation it
+ * replaced, both have to publish the same tilt and detect the same movement
+ */
+public class TiltFilterTest {
+
+  private static final int HISTORY_SIZE = 30;
+  // The running sums are rounded differently than the summed list, so values this close to the
+  // tolerance can be decided either way
+  private static final float TIE_EPSILON = 1e-5f;
+
+  @Test
+  public void replay_matchesListImplementation() {
+    Random random = new Random(0);
+    TiltFilter filter = new TiltFilter(HISTORY_SIZE);
+    ListTiltFilter reference = new ListTiltFilter();
+    float x = 0, y = 9.81f;
+    int count = 100000, moving = 0, ties = 0;
+    for (int i = 0; i < count; i++) {
+      if (random.nextInt(200) == 0) {
+        // The device is tilted
+        x = (random.nextFloat() - 0.5f) * 20;
+        y = (random.nextFloat() - 0.5f) * 20;
+      }
+      float[] values = {
+          x + (float) random.nextGaussian() * 0.05f,
+          y + (float) random.nextGaussian() * 0.05f,
+          (float) random.nextGaussian()
+      };
+      float damping = (10 + random.nextInt(90)) / 100f;
+      float tolerance = (1 + random.nextInt(20)) / 100f;
+
+      boolean isMoving = filter.filter(values, damping, tolerance);
+      Boolean isMovingReference = reference.filter(values, damping, tolerance);
+      long tilt = filter.getTilt();
+      assertEquals(reference.tiltX, TiltFilter.getTiltX(tilt), 0);
+      assertEquals(reference.tiltY, TiltFilter.getTiltY(tilt), 0);
+      if (isMovingReference == null) {
+        ties++;
+        continue;
+      }
+      assertEquals("Movement of value " + i, isMovingReference, isMoving);
+      if (isMoving) {
+        moving++;
+      }
+    }
+    assertTrue("Too many ties: " + ties, ties < count / 100);
+    assertTrue("Movement not covered", moving > count / 100);
+    assertTrue("Standstill not covered", moving < count - count / 100);
+  }
+
+  @Test
+  public void filter_publishesTiltWithoutMovement() {
+    TiltFilter filter = new TiltFilter(HISTORY_SIZE);
+    float tolerance = 0.1f;
+    for (int i = 0; i < HISTORY_SIZE; i++) {
+      filter.filter(new float[]{1, 2, 0}, 0.5f, tolerance);
+    }
+    // Too little to count as movement, but the tilt has to follow anyway
+    assertFalse(filter.filter(new float[]{1.1f, 2, 0}, 0.5f, tolerance));
+    long tilt = filter.getTilt();
+    assertEquals(1.05f, TiltFilter.getTiltX(tilt), 1e-6f);
+    assertEquals(-2, TiltFilter.getTiltY(tilt), 0);
+
+    assertTrue(filter.filter(new float[]{3, 2, 0}, 0.5f, tolerance));
+    assertEquals(2.025f, TiltFilter.getTiltX(filter.getTilt()), 1e-6f);
+  }
+
+  @Test
+  public void reset_restartsLowPassFilter() {
+    TiltFilter filter = new TiltFilter(HISTORY_SIZE);
+    filter.filter(new float[]{1, 2, 0}, 0.5f, 0.1f);
+    filter.reset();
+    filter.filter(new float[]{5, 6, 0}, 0.5f, 0.1f);
+    long tilt = filter.getTilt();
+    assertEquals(5, TiltFilter.getTiltX(tilt), 0);
+    assertEquals(-6, TiltFilter.getTiltY(tilt), 0);
+  }
+
+  /**
+   * Tilt filter of the service before TiltHistory was introduced
+   */
+  private static class ListTiltFilter {
+
+    private final List<float[]> tiltHistory = new ArrayList<>();
+    private float[] accelerationValues;
+    float tiltX, tiltY;
+
+    /**
+     * @return whether the values caused movement or null if it is a tie at the tolerance
+     */
+    Boolean filter(float[] values, float damping, float tolerance) {
+      if (accelerationValues == null) {
+        accelerationValues = values.clone();
+      } else {
+        for (int i = 0; i < values.length; i++) {
+          accelerationValues[i] = accelerationValues[i]
+              + damping * (values[i] - accelerationValues[i]);
+        }
+      }
+      tiltX = accelerationValues[0];
+      tiltY = -accelerationValues[1];
+
+      tiltHistory.add(new float[]{tiltX, tiltY});
+      while (tiltHistory.size() > HISTORY_SIZE) {
+        tiltHistory.remove(0);
+      }
+
+      float sumX = 0, sumY = 0;
+      for (float[] tilt : tiltHistory) {
+        sumX += tilt[0];
+        sumY += tilt[1];
+      }
+      float averageX = sumX / tiltHistory.size();
+      float averageY = sumY / tiltHistory.size();
+      if (Math.abs(averageX) < TIE_EPSILON || Math.abs(averageY) < TIE_EPSILON) {
+        return null;
+      }
+      float limitX = averageX >= 0 ? averageX + tolerance : averageX - tolerance;
+      float limitY = averageY >= 0 ? averageY + tolerance : averageY - tolerance;
+      boolean isTie = false;
+      for (float[] tilt : tiltHistory) {
+        boolean isMovingX = averageX >= 0
+            ? tilt[0] > averageX + tolerance
+            : tilt[0] < averageX - tolerance;
+        boolean isMovingY = averageY >= 0
+            ? tilt[1] > averageY + tolerance
+            : tilt[1] < averageY - tolerance;
+        boolean isTieX = Math.abs(tilt[0] - limitX) < TIE_EPSILON;
+        boolean isTieY = Math.abs(tilt[1] - limitY) < TIE_EPSILON;
+        if ((isMovingX && !isTieX) || (isMovingY && !isTieY)) {
+          return true;
+        }
+        isTie |= isTieX || isTieY;
+      }
+      return isTie ? null : false;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Compiles every wallpaper SVG in the source directory to a binary scene in the output directory,
+ * which is added to the app assets. The scene has the same name as the raw resource, so
+ * SvgDrawable can find it with the resource entry name. The raw resources are generated too, as
+ * copies of the SVGs without the embedded images, so the images are only packaged once.
+ */
+public abstract class CompileScenesTask extends DefaultTask {
+
+  @InputDirectory
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract DirectoryProperty getSvgDirectory();
+
+  @OutputDirectory
+  public abstract DirectoryProperty getOutputDirectory();
+
+  /**
+   * Resource directory for the stripped SVGs, they are written to its raw directory
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getResOutputDirectory();
+
+  @TaskAction
+  public void compile() {
+    File scenesDir = new File(getOutputDirectory().get().getAsFile(), "scenes");
+    File rawDir = new File(getResOutputDirectory().get().getAsFile(), "raw");
+    clearDirectory(scenesDir);
+    clearDirectory(rawDir);
+
+    FileTree svgs = getSvgDirectory().getAsFileTree().matching(
+        pattern -> pattern.include("wallpaper_*.svg")
+    );
+    for (File svg : svgs.getFiles()) {
+      String name = svg.getName().substring(0, svg.getName().length() - ".svg".length());
+      try {
+        List<String> warnings = SceneCompiler.compile(
+            svg, new File(scenesDir, name + SceneCompiler.EXTENSION)
+        );
+        SceneCompiler.stripImages(svg, new File(rawDir, svg.getName()));
+        for (String warning : warnings) {
+          getLogger().warn(svg.getName() + ": " + warning);
+        }
+      } catch (IOException | RuntimeException e) {
+        throw new GradleException("Could not compile " + svg.getName(), e);
+      }
+    }
+  }
+
+  private static void clearDirectory(File directory) {
+    File[] stale = directory.listFiles();
+    if (stale != null) {
+      for (File file : stale) {
+        if (!file.delete()) {
+          throw new GradleException("Could not delete " + file);
+        }
+      }
+    } else if (!directory.mkdirs()) {
+      throw new GradleException("Could not create " + directory);
+    }
+  }
+}
@@ -0,0 +1,371 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.build;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compiles the path data of a SVG path element ('d' attribute) to absolute verbs and coordinates.
+ * Relative, horizontal/vertical, smooth and arc commands are resolved here, so only move, line,
+ * quad, cubic and close remain, which can be passed to android.graphics.Path without any parsing.
+ */
+final class PathCompiler {
+
+  static final byte VERB_MOVE = 0;
+  static final byte VERB_LINE = 1;
+  static final byte VERB_QUAD = 2;
+  static final byte VERB_CUBIC = 3;
+  static final byte VERB_CLOSE = 4;
+
+  private final String d;
+  private final int n;
+  private int pos;
+
+  private byte[] verbs = new byte[32];
+  private int verbCount;
+  private float[] coords = new float[128];
+  private int coordCount;
+  private float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+  private float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+
+  PathCompiler(String d) {
+    this.d = d;
+    this.n = d.length();
+  }
+
+  /**
+   * @throws IllegalArgumentException if the path data is malformed
+   */
+  PathCompiler compile() {
+    float currentX = 0, currentY = 0;
+    float startX = 0, startY = 0;
+    // last control point of the previous cubic or quad, used for smooth curves
+    float controlX = 0, controlY = 0;
+    char previous = ' ';
+    char cmd = ' ';
+
+    skipSeparators();
+    while (pos < n) {
+      char c = d.charAt(pos);
+      if (isCommand(c)) {
+        cmd = c;
+        pos++;
+      } else if (cmd == 'M') { // implied command
+        cmd = 'L';
+      } else if (cmd == 'm') { // implied command
+        cmd = 'l';
+      } else if (cmd == ' ' || cmd == 'Z' || cmd == 'z') {
+        throw new IllegalArgumentException("Unexpected char '" + c + "' at " + pos);
+      }
+
+      boolean relative = Character.isLowerCase(cmd);
+      float offsetX = relative ? currentX : 0;
+      float offsetY = relative ? currentY : 0;
+      switch (Character.toUpperCase(cmd)) {
+        case 'M': {
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          startX = currentX;
+          startY = currentY;
+          addVerb(VERB_MOVE, currentX, currentY);
+          break;
+        }
+        case 'Z': {
+          addVerb(VERB_CLOSE);
+          currentX = startX;
+          currentY = startY;
+          break;
+        }
+        case 'L': {
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_LINE, currentX, currentY);
+          break;
+        }
+        case 'H': {
+          currentX = nextFloat() + offsetX;
+          addVerb(VERB_LINE, currentX, currentY);
+          break;
+        }
+        case 'V': {
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_LINE, currentX, currentY);
+          break;
+        }
+        case 'C': {
+          float x1 = nextFloat() + offsetX;
+          float y1 = nextFloat() + offsetY;
+          controlX = nextFloat() + offsetX;
+          controlY = nextFloat() + offsetY;
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_CUBIC, x1, y1, controlX, controlY, currentX, currentY);
+          break;
+        }
+        case 'S': {
+          float x1 = currentX;
+          float y1 = currentY;
+          if (previous == 'C' || previous == 'S') {
+            x1 = 2 * currentX - controlX;
+            y1 = 2 * currentY - controlY;
+          }
+          controlX = nextFloat() + offsetX;
+          controlY = nextFloat() + offsetY;
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_CUBIC, x1, y1, controlX, controlY, currentX, currentY);
+          break;
+        }
+        case 'Q': {
+          controlX = nextFloat() + offsetX;
+          controlY = nextFloat() + offsetY;
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_QUAD, controlX, controlY, currentX, currentY);
+          break;
+        }
+        case 'T': {
+          if (previous == 'Q' || previous == 'T') {
+            controlX = 2 * currentX - controlX;
+            controlY = 2 * currentY - controlY;
+          } else {
+            controlX = currentX;
+            controlY = currentY;
+          }
+          currentX = nextFloat() + offsetX;
+          currentY = nextFloat() + offsetY;
+          addVerb(VERB_QUAD, controlX, controlY, currentX, currentY);
+          break;
+        }
+        case 'A': {
+          float rx = nextFloat();
+          float ry = nextFloat();
+          float angle = nextFloat();
+          boolean largeArc = nextFlag();
+          boolean sweep = nextFlag();
+          float x = nextFloat() + offsetX;
+          float y = nextFloat() + offsetY;
+          addArc(currentX, currentY, x, y, rx, ry, angle, largeArc, sweep);
+          currentX = x;
+          currentY = y;
+          break;
+        }
+        default:
+          throw new IllegalArgumentException("Invalid path command '" + cmd + "'");
+      }
+      previous = Character.toUpperCase(cmd);
+      skipSeparators();
+    }
+    if (verbCount == 0) {
+      throw new IllegalArgumentException("Path data is empty");
+    }
+    return this;
+  }
+
+  void write(DataOutputStream output) throws IOException {
+    output.writeFloat(left);
+    output.writeFloat(top);
+    output.writeFloat(right);
+    output.writeFloat(bottom);
+    output.writeInt(verbCount);
+    output.writeInt(coordCount);
+    output.write(verbs, 0, verbCount);
+    for (int i = 0; i < coordCount; i++) {
+      output.writeFloat(coords[i]);
+    }
+  }
+
+  private void addVerb(byte verb, float... points) {
+    if (verbCount == verbs.length) {
+      verbs = Arrays.copyOf(verbs, verbCount * 2);
+    }
+    verbs[verbCount++] = verb;
+    if (coordCount + points.length > coords.length) {
+      coords = Arrays.copyOf(coords, Math.max(coords.length * 2, coordCount + points.length));
+    }
+    for (int i = 0; i < points.length; i += 2) {
+      // Same as Path#computeBounds, which includes all control points
+      left = Math.min(left, points[i]);
+      right = Math.max(right, points[i]);
+      top = Math.min(top, points[i + 1]);
+      bottom = Math.max(bottom, points[i + 1]);
+      coords[coordCount++] = points[i];
+      coords[coordCount++] = points[i + 1];
+    }
+  }
+
+  /*
+   * Elliptical arc implementation based on the SVG specification notes (F.6.5 and F.6.6),
+   * split into cubic bezier segments of max. 90 degrees
+   */
+  private void addArc(float x0, float y0, float x, float y, float rx, float ry, float angle,
+      boolean largeArc, boolean sweep) {
+    if (x0 == x && y0 == y) {
+      return;
+    }
+    if (rx == 0 || ry == 0) {
+      addVerb(VERB_LINE, x, y);
+      return;
+    }
+    double radiusX = Math.abs(rx);
+    double radiusY = Math.abs(ry);
+    double phi = Math.toRadians(angle % 360);
+    double cos = Math.cos(phi);
+    double sin = Math.sin(phi);
+
+    double dx2 = (x0 - x) / 2.0;
+    double dy2 = (y0 - y) / 2.0;
+    double x1 = cos * dx2 + sin * dy2;
+    double y1 = -sin * dx2 + cos * dy2;
+
+    // check that radii are large enough
+    double radiiCheck = (x1 * x1) / (radiusX * radiusX) + (y1 * y1) / (radiusY * radiusY);
+    if (radiiCheck > 1) {
+      radiusX *= Math.sqrt(radiiCheck);
+      radiusY *= Math.sqrt(radiiCheck);
+    }
+    double prx = radiusX * radiusX;
+    double pry = radiusY * radiusY;
+    double sq = (prx * pry - prx * y1 * y1 - pry * x1 * x1) / (prx * y1 * y1 + pry * x1 * x1);
+    double coef = (largeArc == sweep ? -1 : 1) * Math.sqrt(Math.max(0, sq));
+    double cx1 = coef * (radiusX * y1 / radiusY);
+    double cy1 = coef * -(radiusY * x1 / radiusX);
+    double cx = cos * cx1 - sin * cy1 + (x0 + x) / 2.0;
+    double cy = sin * cx1 + cos * cy1 + (y0 + y) / 2.0;
+
+    double ux = (x1 - cx1) / radiusX;
+    double uy = (y1 - cy1) / radiusY;
+    double vx = (-x1 - cx1) / radiusX;
+    double vy = (-y1 - cy1) / radiusY;
+    double angleStart = Math.atan2(uy, ux);
+    double angleExtent = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+    if (!sweep && angleExtent > 0) {
+      angleExtent -= 2 * Math.PI;
+    } else if (sweep && angleExtent < 0) {
+      angleExtent += 2 * Math.PI;
+    }
+
+    int segments = Math.max(1, (int) Math.ceil(Math.abs(angleExtent) / (Math.PI / 2) - 1e-7));
+    double delta = angleExtent / segments;
+    double t = 4 / 3.0 * Math.tan(delta / 4);
+    double startX = x0;
+    double startY = y0;
+    double eta = angleStart;
+    for (int i = 0; i < segments; i++) {
+      double cosEta1 = Math.cos(eta);
+      double sinEta1 = Math.sin(eta);
+      eta += delta;
+      double cosEta2 = Math.cos(eta);
+      double sinEta2 = Math.sin(eta);
+
+      double endX = cx + radiusX * cos * cosEta2 - radiusY * sin * sinEta2;
+      double endY = cy + radiusX * sin * cosEta2 + radiusY * cos * sinEta2;
+      double derivative1X = -radiusX * cos * sinEta1 - radiusY * sin * cosEta1;
+      double derivative1Y = -radiusX * sin * sinEta1 + radiusY * cos * cosEta1;
+      double derivative2X = -radiusX * cos * sinEta2 - radiusY * sin * cosEta2;
+      double derivative2Y = -radiusX * sin * sinEta2 + radiusY * cos * cosEta2;
+      if (i == segments - 1) {
+        // prevent rounding errors at the end point
+        endX = x;
+        endY = y;
+      }
+      addVerb(
+          VERB_CUBIC,
+          (float) (startX + t * derivative1X), (float) (startY + t * derivative1Y),
+          (float) (endX - t * derivative2X), (float) (endY - t * derivative2Y),
+          (float) endX, (float) endY
+      );
+      startX = endX;
+      startY = endY;
+    }
+  }
+
+  private static boolean isCommand(char c) {
+    switch (c) {
+      case 'M': case 'm': case 'Z': case 'z': case 'L': case 'l': case 'H': case 'h':
+      case 'V': case 'v': case 'C': case 'c': case 'S': case 's': case 'Q': case 'q':
+      case 'T': case 't': case 'A': case 'a':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void skipSeparators() {
+    while (pos < n) {
+      char c = d.charAt(pos);
+      if (c == ',' || Character.isWhitespace(c)) {
+        pos++;
+      } else {
+        break;
+      }
+    }
+  }
+
+  private boolean nextFlag() {
+    skipSeparators();
+    if (pos >= n || (d.charAt(pos) != '0' && d.charAt(pos) != '1')) {
+      throw new IllegalArgumentException("Expected arc flag at " + pos);
+    }
+    // Flags are not always separated from the following number, e.g. "a1 1 0 011 1"
+    return d.charAt(pos++) == '1';
+  }
+
+  private float nextFloat() {
+    skipSeparators();
+    int start = pos;
+    if (pos < n && (d.charAt(pos) == '-' || d.charAt(pos) == '+')) {
+      pos++;
+    }
+    boolean hasDot = false;
+    boolean hasDigits = false;
+    while (pos < n) {
+      char c = d.charAt(pos);
+      if (c >= '0' && c <= '9') {
+        hasDigits = true;
+        pos++;
+      } else if (c == '.' && !hasDot) {
+        // A second dot starts the next number, e.g. "1.5.5"
+        hasDot = true;
+        pos++;
+      } else {
+        break;
+      }
+    }
+    if (hasDigits && pos < n && (d.charAt(pos) == 'e' || d.charAt(pos) == 'E')) {
+      int exponent = pos + 1;
+      if (exponent < n && (d.charAt(exponent) == '-' || d.charAt(exponent) == '+')) {
+        exponent++;
+      }
+      if (exponent < n && Character.isDigit(d.charAt(exponent))) {
+        pos = exponent;
+        while (pos < n && Character.isDigit(d.charAt(pos))) {
+          pos++;
+        }
+      }
+    }
+    if (!hasDigits) {
+      throw new IllegalArgumentException("Expected number at " + start);
+    }
+    return Float.parseFloat(d.substring(start, pos));
+  }
+}
@@ -0,0 +1,516 @@
+/*
+ * This file is part of Doodle Android.
+ *
+ * Doodle Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Doodle Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Doodle Android. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (c) 2019-2022 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.doodle.build;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Compiles a wallpaper SVG to a binary scene which can be read by SvgDrawable with a single linear
+ * read. The same rules as in SvgDrawable's SVG parser apply (see CUSTOM.md), so a scene always
+ * results in the same drawable as the original SVG.
+ * <p>
+ * Layout (big endian, strings as modified UTF-8 like DataOutput#writeUTF):
+ * <pre>
+ * header: int magic, short version, float svgWidth, float svgHeight, int objectCount
+ * object: byte type, utf id, [style], payload, byte transformCount, transforms...
+ * style (all types but group): int fill, int stroke, float fillOpacity, float strokeOpacity,
+ *     float strokeWidth, byte lineCap, byte lineJoin
+ * transform: byte op, rotate: float degrees, byte hasPivot, [float x, float y]
+ *                     translate: float x, float y
+ *                     scale: float scale
+ * group: int childCount, children...
+ * path: float left, top, right, bottom, int verbCount, int coordCount, verbs, float coords
+ * rect: float x, y, width, height, rx, ry
+ * circle: float cx, cy, r
+ * ellipse: float cx, cy, rx, ry
+ * image: float x, y, width, height, utf file (empty if the image has no data)
+ * </pre>
+ * Embedded images are not part of the scene, they are written base64-decoded next to it as
+ * separate files (<scene name>_<index>.<png|jpg|webp>), so they can be decoded from a stream when
+ * they are needed.
+ */
+public final class SceneCompiler {
+
+  public static final String EXTENSION = ".scene";
+
+  // Embedded image data, with the whitespace before the attribute
+  private static final Pattern IMAGE_DATA = Pattern.compile(
+      "\\s+(?:xlink:)?href\\s*=\\s*\"data:[^\"]*\""
+  );
+
+  static final int MAGIC = 0x4453434E; // DSCN
+  static final short VERSION = 2;
+
+  static final byte TYPE_GROUP = 1;
+  static final byte TYPE_PATH = 2;
+  static final byte TYPE_RECT = 3;
+  static final byte TYPE_CIRCLE = 4;
+  static final byte TYPE_ELLIPSE = 5;
+  static final byte TYPE_IMAGE = 6;
+
+  static final byte LINE_CAP_NONE = 0;
+  static final byte LINE_CAP_BUTT = 1;
+  static final byte LINE_CAP_ROUND = 2;
+  static final byte LINE_CAP_SQUARE = 3;
+
+  static final byte LINE_JOIN_NONE = 0;
+  static final byte LINE_JOIN_MITER = 1;
+  static final byte LINE_JOIN_ROUND = 2;
+  static final byte LINE_JOIN_BEVEL = 3;
+
+  static final byte TRANSFORM_ROTATE = 1;
+  static final byte TRANSFORM_TRANSLATE = 2;
+  static final byte TRANSFORM_SCALE = 3;
+
+  private static final String NAMESPACE_XLINK = "http://www.w3.org/1999/xlink";
+
+  private static final Map<String, Integer> COLOR_NAMES = new HashMap<>();
+
+  static {
+    // Same as android.graphics.Color#parseColor
+    COLOR_NAMES.put("black", 0xFF000000);
+    COLOR_NAMES.put("darkgray", 0xFF444444);
+    COLOR_NAMES.put("gray", 0xFF888888);
+    COLOR_NAMES.put("lightgray", 0xFFCCCCCC);
+    COLOR_NAMES.put("white", 0xFFFFFFFF);
+    COLOR_NAMES.put("red", 0xFFFF0000);
+    COLOR_NAMES.put("green", 0xFF00FF00);
+    COLOR_NAMES.put("blue", 0xFF0000FF);
+    COLOR_NAMES.put("yellow", 0xFFFFFF00);
+    COLOR_NAMES.put("cyan", 0xFF00FFFF);
+    COLOR_NAMES.put("magenta", 0xFFFF00FF);
+    COLOR_NAMES.put("aqua", 0xFF00FFFF);
+    COLOR_NAMES.put("fuchsia", 0xFFFF00FF);
+    COLOR_NAMES.put("darkgrey", 0xFF444444);
+    COLOR_NAMES.put("grey", 0xFF888888);
+    COLOR_NAMES.put("lightgrey", 0xFFCCCCCC);
+    COLOR_NAMES.put("lime", 0xFF00FF00);
+    COLOR_NAMES.put("maroon", 0xFF800000);
+    COLOR_NAMES.put("navy", 0xFF000080);
+    COLOR_NAMES.put("olive", 0xFF808000);
+    COLOR_NAMES.put("purple", 0xFF800080);
+    COLOR_NAMES.put("silver", 0xFFC0C0C0);
+    COLOR_NAMES.put("teal", 0xFF008080);
+  }
+
+  private final String name;
+  private final File directory;
+  private final String sceneName;
+  private final Set<String> ids = new HashSet<>();
+  private final List<String> warnings = new ArrayList<>();
+  private int imageCount;
+
+  private SceneCompiler(String name, File directory, String sceneName) {
+    this.name = name;
+    this.directory = directory;
+    this.sceneName = sceneName;
+  }
+
+  /**
+   * @return warnings about skipped elements, same as the ones SvgDrawable would log
+   */
+  public static List<String> compile(File svg, File scene) throws IOException {
+    String sceneName = scene.getName();
+    if (sceneName.endsWith(EXTENSION)) {
+      sceneName = sceneName.substring(0, sceneName.length() - EXTENSION.length());
+    }
+    SceneCompiler compiler = new SceneCompiler(svg.getName(), scene.getParentFile(), sceneName);
+    Element root;
+    try (InputStream input = new BufferedInputStream(new FileInputStream(svg))) {
+      root = compiler.readTree(input);
+    }
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(scene))) {
+      compiler.write(root, output);
+    }
+    return compiler.warnings;
+  }
+
+  /**
+   * Writes the SVG without the data of its embedded images, which are already part of the
+   * compiled scene. The SVG is only parsed if the scene can't be read, its images are skipped then.
+   */
+  public static void stripImages(File svg, File output) throws IOException {
+    String content = new String(Files.readAllBytes(svg.toPath()), StandardCharsets.UTF_8);
+    String stripped = IMAGE_DATA.matcher(content).replaceAll("");
+    Files.write(output.toPath(), stripped.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Element readTree(InputStream input) throws IOException {
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      XMLStreamReader reader = factory.createXMLStreamReader(input);
+      Element root = null;
+      List<Element> stack = new ArrayList<>();
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          Element element = new Element(reader.getLocalName());
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String key = reader.getAttributeLocalName(i);
+            if (NAMESPACE_XLINK.equals(reader.getAttributeNamespace(i))) {
+              key = "xlink:" + key;
+            } else if (reader.getAttributeNamespace(i) != null
+                && !reader.getAttributeNamespace(i).isEmpty()) {
+              continue;
+            }
+            element.attributes.put(key, reader.getAttributeValue(i));
+          }
+          if (stack.isEmpty()) {
+            root = element;
+          } else {
+            stack.get(stack.size() - 1).children.add(element);
+          }
+          stack.add(element);
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          stack.remove(stack.size() - 1);
+        }
+      }
+      if (root == null || !root.name.equals("svg")) {
+        throw new IOException(name + ": root element has to be 'svg'");
+      }
+      return root;
+    } catch (XMLStreamException e) {
+      throw new IOException(name + ": invalid XML", e);
+    }
+  }
+
+  private void write(Element root, OutputStream outputStream) throws IOException {
+    String viewBox = root.attributes.get("viewBox");
+    if (viewBox == null) {
+      throw new IOException(name + ": required viewBox attribute is missing");
+    }
+    String[] metrics = viewBox.split(" ");
+    float svgWidth = Float.parseFloat(metrics[2]) - Float.parseFloat(metrics[0]);
+    float svgHeight = Float.parseFloat(metrics[3]) - Float.parseFloat(metrics[1]);
+
+    ByteArrayOutputStream objects = new ByteArrayOutputStream();
+    int count = writeObjects(root.children, new DataOutputStream(objects), false);
+
+    DataOutputStream output = new DataOutputStream(outputStream);
+    output.writeInt(MAGIC);
+    output.writeShort(VERSION);
+    output.writeFloat(svgWidth);
+    output.writeFloat(svgHeight);
+    output.writeInt(count);
+    objects.writeTo(output);
+    output.flush();
+  }
+
+  /**
+   * @return the number of written objects
+   */
+  private int writeObjects(List<Element> elements, DataOutputStream output, boolean isInGroup)
+      throws IOException {
+    int count = 0;
+    for (Element element : elements) {
+      String id = element.attributes.get("id");
+      switch (element.name) {
+        case "g":
+          if (isInGroup) {
+            warnings.add("child groups in groups are not supported, skipping...");
+          } else if (id == null || ids.contains(id)) {
+            // SvgDrawable continues with the children as if they were not in a group
+            warnings.add("group id '" + id + "' is missing or already exists");
+            count += writeObjects(element.children, output, false);
+          } else {
+            ids.add(id);
+            ByteArrayOutputStream children = new ByteArrayOutputStream();
+            int childCount = writeObjects(element.children, new DataOutputStream(children), true);
+            output.writeByte(TYPE_GROUP);
+            output.writeUTF(id);
+            output.writeInt(childCount);
+            children.writeTo(output);
+            writeTransformation(element, output);
+            count++;
+          }
+          break;
+        case "path":
+        case "rect":
+        case "circle":
+        case "ellipse":
+        case "image":
+          if (id == null || ids.contains(id)) {
+            warnings.add(element.name + " id '" + id + "' is missing or already exists");
+          } else if (writeObject(element, id, output)) {
+            if (!isInGroup) {
+              ids.add(id);
+            }
+            count++;
+          }
+          break;
+        default:
+          // Unsupported elements and their children are skipped
+          break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return false if the element can't be drawn and was not written
+   */
+  private boolean writeObject(Element element, String id, DataOutputStream output)
+      throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(payload);
+    byte type;
+    switch (element.name) {
+      case "path":
+        String d = element.attributes.get("d");
+        if (d == null || d.isEmpty()) {
+          return false;
+        }
+        try {
+          new PathCompiler(d).compile().write(data);
+        } catch (IllegalArgumentException e) {
+          warnings.add("path '" + id + "' could not be compiled: " + e.getMessage());
+          return false;
+        }
+        type = TYPE_PATH;
+        break;
+      case "rect":
+        data.writeFloat(parseFloat(element.attributes.get("x")));
+        data.writeFloat(parseFloat(element.attributes.get("y")));
+        data.writeFloat(parseFloat(element.attributes.get("width")));
+        data.writeFloat(parseFloat(element.attributes.get("height")));
+        data.writeFloat(parseFloat(element.attributes.get("rx")));
+        data.writeFloat(parseFloat(element.attributes.get("ry")));
+        type = TYPE_RECT;
+        break;
+      case "circle":
+        data.writeFloat(parseFloat(element.attributes.get("cx")));
+        data.writeFloat(parseFloat(element.attributes.get("cy")));
+        data.writeFloat(parseFloat(element.attributes.get("r")));
+        type = TYPE_CIRCLE;
+        break;
+      case "ellipse":
+        data.writeFloat(parseFloat(element.attributes.get("cx")));
+        data.writeFloat(parseFloat(element.attributes.get("cy")));
+        data.writeFloat(parseFloat(element.attributes.get("rx")));
+        data.writeFloat(parseFloat(element.attributes.get("ry")));
+        type = TYPE_ELLIPSE;
+        break;
+      case "image":
+        data.writeFloat(parseFloat(element.attributes.get("x")));
+        data.writeFloat(parseFloat(element.attributes.get("y")));
+        data.writeFloat(parseFloat(element.attributes.get("width")));
+        data.writeFloat(parseFloat(element.attributes.get("height")));
+        data.writeUTF(writeImage(element.attributes.get("xlink:href")));
+        type = TYPE_IMAGE;
+        break;
+      default:
+        return false;
+    }
+    output.writeByte(type);
+    output.writeUTF(id);
+    writeStyle(element, output);
+    payload.writeTo(output);
+    // The transformation is applied to the geometry, so it has to be read after the payload
+    writeTransformation(element, output);
+    return true;
+  }
+
+  /**
+   * @return the file name of the written image or an empty string if there is no image data
+   */
+  private String writeImage(String image) throws IOException {
+    if (image == null || image.indexOf(',') == -1) {
+      warnings.add("image data is missing");
+      return "";
+    }
+    String header = image.substring(0, image.indexOf(','));
+    String extension;
+    if (header.contains("image/png")) {
+      extension = ".png";
+    } else if (header.contains("image/jpeg") || header.contains("image/jpg")) {
+      extension = ".jpg";
+    } else if (header.contains("image/webp")) {
+      extension = ".webp";
+    } else {
+      throw new IOException(name + ": unsupported image type '" + header + "'");
+    }
+    byte[] decoded = Base64.getMimeDecoder().decode(image.substring(image.indexOf(',') + 1));
+    String file = sceneName + "_" + imageCount++ + extension;
+    Files.write(new File(directory, file).toPath(), decoded);
+    return file;
+  }
+
+  private void writeStyle(Element element, DataOutputStream output) throws IOException {
+    output.writeInt(parseColor(element.attributes.get("fill")));
+    output.writeInt(parseColor(element.attributes.get("stroke")));
+    output.writeFloat(parseOpacity(element.attributes.get("fill-opacity")));
+    output.writeFloat(parseOpacity(element.attributes.get("stroke-opacity")));
+    output.writeFloat(parseFloat(element.attributes.get("stroke-width")));
+    String lineCap = element.attributes.get("stroke-linecap");
+    if ("butt".equals(lineCap)) {
+      output.writeByte(LINE_CAP_BUTT);
+    } else if ("round".equals(lineCap)) {
+      output.writeByte(LINE_CAP_ROUND);
+    } else if ("square".equals(lineCap)) {
+      output.writeByte(LINE_CAP_SQUARE);
+    } else {
+      output.writeByte(LINE_CAP_NONE);
+    }
+    String lineJoin = element.attributes.get("stroke-linejoin");
+    if ("miter".equals(lineJoin)) {
+      output.writeByte(LINE_JOIN_MITER);
+    } else if ("round".equals(lineJoin)) {
+      output.writeByte(LINE_JOIN_ROUND);
+    } else if ("bevel".equals(lineJoin)) {
+      output.writeByte(LINE_JOIN_BEVEL);
+    } else {
+      output.writeByte(LINE_JOIN_NONE);
+    }
+  }
+
+  /**
+   * Same rules as SvgDrawable#parseTransformation, unsupported values stop the processing
+   */
+  private void writeTransformation(Element element, DataOutputStream output) throws IOException {
+    String transformation = element.attributes.get("transform");
+    ByteArrayOutputStream operations = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(operations);
+    int count = 0;
+    if (transformation != null && !transformation.isEmpty()) {
+      String[] transform = transformation.split("[ ](?=[^)]*?(?:\\(|$))");
+      for (String action : transform) {
+        String value = action.substring(action.indexOf("(") + 1, action.indexOf(")"));
+        if (action.contains("rotate")) {
+          String[] rotation = value.split("[\\n\\r\\s]+");
+          data.writeByte(TRANSFORM_ROTATE);
+          data.writeFloat(Float.parseFloat(rotation[0]));
+          data.writeBoolean(rotation.length == 3);
+          if (rotation.length == 3) {
+            data.writeFloat(Float.parseFloat(rotation[1]));
+            data.writeFloat(Float.parseFloat(rotation[2]));
+          }
+        } else if (action.contains("translate")) {
+          String[] translation = value.split(",");
+          if (translation.length != 2) {
+            warnings.add("translation: value not supported");
+            break;
+          }
+          data.writeByte(TRANSFORM_TRANSLATE);
+          data.writeFloat(Float.parseFloat(translation[0]));
+          data.writeFloat(Float.parseFloat(translation[1]));
+        } else if (action.contains("scale")) {
+          String[] scale = value.split("[\\n\\r\\s]+");
+          if (scale.length > 1) {
+            warnings.add("scale: multiple values are not supported");
+            break;
+          }
+          data.writeByte(TRANSFORM_SCALE);
+          data.writeFloat(Float.parseFloat(scale[0]));
+        } else {
+          continue;
+        }
+        count++;
+      }
+    }
+    output.writeByte(count);
+    operations.writeTo(output);
+  }
+
+  private static float parseFloat(String value) {
+    if (value != null && !value.isEmpty()) {
+      try {
+        return Float.parseFloat(value);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    } else {
+      return 0;
+    }
+  }
+
+  private static float parseOpacity(String value) {
+    if (value != null && !value.isEmpty()) {
+      try {
+        return Float.parseFloat(value);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    } else {
+      return 1;
+    }
+  }
+
+  private static int parseColor(String value) {
+    if (value == null || value.isEmpty() || value.equals("#00000000") || value.equals("none")) {
+      return 0;
+    }
+    if (value.charAt(0) == '#') {
+      String hex = value.substring(1);
+      if (hex.length() == 3) {
+        hex = "" + hex.charAt(0) + hex.charAt(0) + hex.charAt(1) + hex.charAt(1)
+            + hex.charAt(2) + hex.charAt(2);
+      }
+      try {
+        if (hex.length() == 6) {
+          return (int) (Long.parseLong(hex, 16) | 0xFF000000L);
+        } else if (hex.length() == 8) {
+          return (int) Long.parseLong(hex, 16);
+        }
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+      return 0;
+    }
+    Integer color = COLOR_NAMES.get(value.toLowerCase(Locale.ROOT));
+    return color != null ? color : 0;
+  }
+
+  private static class Element {
+
+    final String name;
+    final Map<String, String> attributes = new HashMap<>();
+    final List<Element> children = new ArrayList<>();
+
+    Element(String name) {
+      this.name = name;
+    }
+  }
+}